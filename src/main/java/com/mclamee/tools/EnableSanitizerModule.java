@@ -6,7 +6,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
-import com.mclamee.tools.sanitizer.config.SanitizerConfiguration;
+import com.mclamee.tools.sanitizer.config.SanitizerConfigurationSelector;
+import org.springframework.context.annotation.AdviceMode;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
@@ -14,6 +15,27 @@ import org.springframework.context.annotation.Import;
 @Target({ElementType.TYPE})
 @Documented
 @Configuration
-@Import(SanitizerConfiguration.class)
+@Import(SanitizerConfigurationSelector.class)
 public @interface EnableSanitizerModule {
+
+    /**
+     * How the Sanitizer advice is applied: {@link AdviceMode#PROXY} wraps the beans into Spring AOP proxies,
+     * {@link AdviceMode#ASPECTJ} configures the {@code SanitizerAspect} woven into the classes by AspectJ, at compile
+     * time or at load time.
+     * <p>
+     * The aspect is not declared to a load-time weaver by this module, so that a weaver run for other reasons leaves the
+     * proxy mode unchanged. Declare it in the {@code META-INF/aop.xml} of the application, run with
+     * {@code -javaagent:aspectjweaver.jar}:
+     * <pre>
+     * &lt;aspectj&gt;
+     *     &lt;aspects&gt;
+     *         &lt;aspect name="com.mclamee.tools.sanitizer.SanitizerAspect"/&gt;
+     *     &lt;/aspects&gt;
+     *     &lt;weaver&gt;
+     *         &lt;include within="com.example.app..*"/&gt;
+     *     &lt;/weaver&gt;
+     * &lt;/aspectj&gt;
+     * </pre>
+     */
+    AdviceMode mode() default AdviceMode.PROXY;
 }
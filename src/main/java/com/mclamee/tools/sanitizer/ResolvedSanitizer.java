@@ -0,0 +1,38 @@
+package com.mclamee.tools.sanitizer;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.ToString;
+
+/**
+ * A Sanitizer resolved once by the {@link SanitizerEngine}, to be held and called without any further lookup
+ *
+ * @param <T> the sanitized type
+ */
+@Getter
+@ToString(of = {"key", "sanitizer", "fallback", "lifted"})
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ResolvedSanitizer<T> {
+    private final SanitizerCache.SanitizerCacheKey key;
+    // the Sanitizer of the elements when lifted over a container, the first one of a chain, null when walking the
+    // @Sanitized fields of a VO
+    private final SanitizerDefinition sanitizer;
+    private final SanitizerInvoker invoker;
+    // resolved by the default rules
+    private final boolean fallback;
+    private final boolean lifted;
+
+    /**
+     * Sanitize the value, the exceptions of the Sanitizer are thrown as is
+     *
+     * @param value the value
+     * @return the sanitized value
+     */
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    public T sanitize(T value) {
+        return (T) invoker.invoke(value);
+    }
+}
@@ -8,10 +8,19 @@ import java.lang.annotation.Target;
 
 /**
  * Mark a parameter can be sanitized by Sanitizers
+ * <p>
+ * On a field of a VO, the field is sanitized whenever the VO is: a {@code @Sanitized} parameter of a type without any
+ * Sanitizer walks the {@code @Sanitized} fields of its value, nested VOs and containers included.
+ * <p>
+ * A chain of String Sanitizers which are all {@link Sanitizer#fused()} runs as a single pass over the chars.
  */
-@Target(ElementType.PARAMETER)
+@Target({ElementType.PARAMETER, ElementType.FIELD})
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface Sanitized {
-    String value() default SanitizerCache.DEFAULT_KEY;
+    /**
+     * The Sanitizer name, or a chain of names applied in order, resolved once into a single invoker; no names at all
+     * is the default Sanitizer
+     */
+    String[] value() default SanitizerCache.DEFAULT_KEY;
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
 import org.springframework.core.annotation.AliasFor;
 
 /**
@@ -21,4 +22,41 @@ public @interface Sanitizer {
     @AliasFor("value") String name() default "";
 
     @AliasFor("name") String value() default "";
+
+    /**
+     * Whether the Sanitizer is a pure function of an immutable parameter, so that its results can be cached by
+     * {@link SanitizerResultCache} and shared by all the callers. Only Sanitizers of a String, a primitive, a wrapper
+     * or an enum can be pure.
+     */
+    boolean pure() default false;
+
+    /**
+     * The maximum number of cached results of a pure Sanitizer, or of cached characters if {@link #weighByLength()}
+     */
+    long cacheSize() default 10_000;
+
+    /**
+     * Weigh the cached results of a pure Sanitizer by the length of their CharSequence parameter
+     */
+    boolean weighByLength() default false;
+
+    /**
+     * Canonicalize the equal short results of a String Sanitizer into one instance by the
+     * {@link com.mclamee.tools.sanitizer.util.StringDeduplicator#DEFAULT} table
+     */
+    boolean dedup() default false;
+
+    /**
+     * The char level equivalent of a String Sanitizer, fused with the other fusable Sanitizers of a
+     * {@code @Sanitized} chain into a single pass. {@link CharSanitizer} itself, the default, means not fusable; pure
+     * and dedup Sanitizers are never fused.
+     */
+    Class<? extends CharSanitizer> fused() default CharSanitizer.class;
+
+    /**
+     * Whether sanitizing a result of the Sanitizer again returns it unchanged. Within the outermost {@code @Sanitized}
+     * call of a thread, a value returned by the Sanitizer is not sanitized again by the nested {@code @Sanitized}
+     * calls, so it must not be changed in between.
+     */
+    boolean idempotent() default false;
 }
\ No newline at end of file
@@ -2,7 +2,17 @@ package com.mclamee.tools.sanitizer;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -13,70 +23,150 @@ import org.springframework.stereotype.Component;
 
 /**
  * Enable the Sanitizer Feature
+ * <p>
+ * Applied by Spring AOP proxies, or woven by AspectJ. A woven aspect which is not configured by a context yet fails the
+ * calls with an {@link IllegalStateException} rather than let the values through unsanitized.
+ * <p>
+ * A value returned by an {@link Sanitizer#idempotent()} Sanitizer is not sanitized again by the same Sanitizer within
+ * the outermost {@code @Sanitized} call of the thread, like a VO passed from a controller to a service then to a
+ * repository. The skipped work is counted by {@link #getIdempotenceStats()}.
  */
 @Slf4j
 @Aspect
 @Component
 public class SanitizerAspect {
-    public static final String AROUND_EXPRESSION = "execution(public * *(.., @" + SanitizerCache.BASE_PACKAGE + ".Sanitized (*), ..))";
+    public static final String AROUND_EXPRESSION = "execution(public !static * *(.., @" + SanitizerCache.BASE_PACKAGE + ".Sanitized (*), ..))";
+
+    /**
+     * Plans are resolved on the first call of each method, the steady state call only walks the plan. A plan of an
+     * older version of the cached Sanitizers is resolved again on its next call.
+     */
+    private final ConcurrentMap<Method, SanitizerPlan> plans = new ConcurrentHashMap<>();
+    private final LongAdder idempotentChecks = new LongAdder();
+    private final LongAdder idempotentSkips = new LongAdder();
 
     @Around(AROUND_EXPRESSION)
     public Object methodWithAnnotationOnAtLeastOneParameter(ProceedingJoinPoint pjp) throws Throwable {
-        String className = pjp.getSignature().getDeclaringTypeName();
-
+        if (engine == null) {
+            throw new IllegalStateException("SanitizerAspect is woven into " + pjp.getSignature().getDeclaringTypeName() +
+                " but not configured, enable @EnableSanitizerModule(mode = AdviceMode.ASPECTJ) in the context");
+        }
         MethodSignature methodSig = (MethodSignature) pjp.getSignature();
         Method targetMethod = methodSig.getMethod();
-        Annotation[][] annotations = targetMethod.getParameterAnnotations();
-        Object[] args = pjp.getArgs();
 
-        for (int i = 0; i < args.length; i++) {
-            for (Annotation annotation : annotations[i]) {
-                if (Sanitized.class.isInstance(annotation)) {
-                    Object targetParam = args[i];
-
-                    String methodName = targetMethod.getName();
-                    String genericTypeName = targetMethod.getGenericParameterTypes()[i].getTypeName();
-                    String sanitizerName = ((Sanitized) annotation).value();
-
-                    SanitizerCache.SanitizerCacheKey refKey = SanitizerCache.SanitizerCacheKey.builder()
-                        .className(className)
-                        .genericTypeName(genericTypeName)
-                        .sanitizerName(sanitizerName)
-                        .methodName(sanitizerName) // cannot get method name, so use sanitizer name instead
-                        .build();
-
-                    Method sanitizer = lookupMethod(i, methodName, refKey);
-
-                    if (sanitizer != null) {
-                        log.info("Invoking Sanitizer [" + refKey + "] on the " + i + "th arg of " + methodName + ", value = " + targetParam);
-                        Object sanitized = sanitizer.invoke(new Object(), targetParam);
-                        log.info("Sanitized value = " + sanitized);
-                        // replace the previous args
-                        args[i] = sanitized;
+        // read before resolving, a plan racing with a change is stamped older and resolved again
+        long version = engine.version();
+        SanitizerPlan plan = plans.get(targetMethod);
+        if (plan == null || plan.version() != version) {
+            // concurrent callers may resolve the same plan, the last one wins
+            plan = compilePlan(methodSig.getDeclaringTypeName(), targetMethod, version);
+            plans.put(targetMethod, plan);
+        }
+        if (plan.size() == 0) {
+            return pjp.proceed();
+        }
+
+        SanitizerScope scope = plan.isIdempotent() ? SanitizerScope.current() : null;
+        boolean outermost = plan.isIdempotent() && scope == null;
+        if (outermost) {
+            scope = SanitizerScope.open();
+        }
+        try {
+            Object[] args = pjp.getArgs();
+            for (int i = 0; i < plan.size(); i++) {
+                SanitizerPlan.Step step = plan.step(i);
+                Object targetParam = args[step.getIndex()];
+                boolean idempotent = step.isIdempotent() && targetParam != null;
+                SanitizerDefinition definition = step.getSanitizer().getSanitizer();
+
+                if (idempotent) {
+                    idempotentChecks.increment();
+                    if (scope.isDone(targetParam, definition)) {
+                        idempotentSkips.increment();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Skipping idempotent Sanitizer [" + step.getSanitizer().getKey() + "] on the " + step.getIndex() + "th arg of " + targetMethod.getName() + ", already sanitized");
+                        }
+                        continue;
                     }
                 }
+                if (log.isDebugEnabled()) {
+                    log.debug("Invoking Sanitizer [" + step.getSanitizer().getKey() + "] on the " + step.getIndex() + "th arg of " + targetMethod.getName() + ", value = " + targetParam);
+                }
+                Object sanitized = step.getSanitizer().getInvoker().invoke(targetParam);
+                if (log.isDebugEnabled()) {
+                    log.debug("Sanitized value = " + sanitized);
+                }
+                if (idempotent && sanitized != null) {
+                    scope.done(sanitized, definition);
+                }
+                // replace the previous args
+                args[step.getIndex()] = sanitized;
+            }
+
+            return pjp.proceed(args);
+        } finally {
+            if (outermost) {
+                scope.close();
             }
         }
+    }
+
+    /**
+     * Statistics of the idempotent Sanitizers
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class IdempotenceStats {
+        // invocations of idempotent Sanitizers on non null values
+        private final long checked;
+        // invocations skipped as the value was already sanitized in the same call
+        private final long skipped;
+    }
 
-        return pjp.proceed();
+    public IdempotenceStats getIdempotenceStats() {
+        return new IdempotenceStats(idempotentChecks.sum(), idempotentSkips.sum());
     }
 
+    private SanitizerEngine engine;
+
+    /**
+     * A woven aspect is a singleton configured by each context, drop the plans resolved by the previous one
+     *
+     * @param engine the Sanitizers of the context
+     */
     @Autowired
-    private SanitizerCache cache;
-
-    private Method lookupMethod(int i, String methodName, SanitizerCache.SanitizerCacheKey refKey) {
-        Method sanitizer = cache.get(refKey, false);
-        if (sanitizer == null) {
-            log.warn("No Sanitizer found by Key [" + refKey + "] for the " + i + "th arg of " + methodName + "");
-
-            sanitizer = cache.get(refKey, true);
-            if (sanitizer == null) {
-                throw new IllegalArgumentException("No default Sanitizer found for the " + i + "th arg of " + methodName + "");
-            } else {
-                log.info("Using Default Sanitizer: [" + sanitizer + "]");
+    public void setEngine(SanitizerEngine engine) {
+        this.engine = engine;
+        plans.clear();
+    }
+
+    private SanitizerPlan compilePlan(String className, Method targetMethod, long version) {
+        Annotation[][] annotations = targetMethod.getParameterAnnotations();
+        String methodName = targetMethod.getName();
+
+        List<SanitizerPlan.Step> steps = new ArrayList<>();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (Sanitized.class.isInstance(annotation)) {
+                    Type genericType = targetMethod.getGenericParameterTypes()[i];
+                    String[] sanitizerNames = ((Sanitized) annotation).value();
+
+                    ResolvedSanitizer<Object> sanitizer = engine.resolve(className, genericType, sanitizerNames);
+                    if (sanitizer == null) {
+                        throw new IllegalArgumentException("No default Sanitizer found for the " + i + "th arg of " + methodName + "");
+                    }
+                    // a chain of idempotent Sanitizers is not idempotent itself
+                    boolean idempotent = sanitizerNames.length <= 1 && sanitizer.getSanitizer() != null &&
+                        sanitizer.getSanitizer().isIdempotent();
+                    steps.add(new SanitizerPlan.Step(i, sanitizer, idempotent));
+                }
             }
         }
-        return sanitizer;
+
+        log.debug("Compiled sanitization plan of " + targetMethod + " with " + steps.size() + " step(s), version " + version);
+        boolean idempotent = steps.stream().anyMatch(SanitizerPlan.Step::isIdempotent);
+        return new SanitizerPlan(version, steps.toArray(new SanitizerPlan.Step[0]), idempotent);
     }
 
 }
@@ -0,0 +1,61 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Attach a Sanitizer downstream of an asynchronous value, without blocking on it
+ * <p>
+ * A {@link CompletionStage} or {@link CompletableFuture} is sanitized by {@code thenApply}, a Reactive Streams
+ * {@code Publisher} element by element as they are emitted, when the library is on the classpath.
+ */
+final class SanitizerAsync {
+    private static final String PUBLISHER = "org.reactivestreams.Publisher";
+    private static final boolean REACTIVE_STREAMS_PRESENT = ClassUtils.isPresent(PUBLISHER, SanitizerAsync.class.getClassLoader());
+
+    private SanitizerAsync() {
+    }
+
+    /**
+     * The type of the asynchronous values
+     *
+     * @param type the generic type of the parameter
+     * @return the type of the values, null if not an asynchronous wrapper
+     */
+    static Type valueType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        Type rawType = parameterized.getRawType();
+        if (rawType != CompletionStage.class && rawType != CompletableFuture.class &&
+            !(REACTIVE_STREAMS_PRESENT && PUBLISHER.equals(((Class<?>) rawType).getName()))) {
+            return null;
+        }
+        Type valueType = parameterized.getActualTypeArguments()[0];
+        if (valueType instanceof WildcardType) {
+            valueType = ((WildcardType) valueType).getUpperBounds()[0];
+        }
+        return valueType;
+    }
+
+    /**
+     * Sanitize the values of the wrapper by the value Sanitizer
+     *
+     * @param type  the generic type of the wrapper
+     * @param value the Sanitizer of the values
+     * @return the invoker returning a new wrapper of the sanitized values
+     */
+    static SanitizerInvoker lift(Type type, ResolvedSanitizer<Object> value) {
+        Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+        if (CompletionStage.class.isAssignableFrom(rawType)) {
+            return stage -> stage == null ? null : ((CompletionStage<?>) stage).thenApply(value::sanitize);
+        }
+        return publisher -> publisher == null ? null : SanitizingPublisher.of(publisher, value);
+    }
+}
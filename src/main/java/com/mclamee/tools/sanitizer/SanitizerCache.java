@@ -1,36 +1,81 @@
 package com.mclamee.tools.sanitizer;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.function.BiPredicate;
 import javax.annotation.PostConstruct;
 
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
 /**
  * Cache Key to hold all the found Sanitizers
+ * <p>
+ * While the context starts, the Sanitizers are cached into a mutable builder. On {@link ContextRefreshedEvent} the
+ * builder is frozen into an immutable {@link SanitizerIndex} snapshot, which is read without locks. A Sanitizer cached
+ * after the freeze swaps in a whole new snapshot, copy-on-write.
+ * <p>
+ * Sanitizers may also be registered, replaced and unregistered at runtime, by {@link #register(Map)},
+ * {@link #replace(Collection, Map)} and {@link #unregister(Collection)}. Every change publishes a new snapshot stamped by a new {@link #getVersion()}, the
+ * plans resolved from an older version are resolved again on their next use. A {@link ResolvedSanitizer} held by the
+ * caller keeps the Sanitizers it has resolved.
  */
 @Slf4j
 @Component
-public class SanitizerCache {
+public class SanitizerCache implements ApplicationListener<ContextRefreshedEvent> {
     public static final String BASE_PACKAGE = "com.mclamee.tools.sanitizer";
     public static final String DEFAULT_KEY = "default";
 
-    private Map<SanitizerCacheKey, Method> cacheHolder;
+    private final Object lock = new Object();
+    // guarded by lock, null once frozen
+    private Map<SanitizerCacheKey, SanitizerDefinition> cacheHolder = new LinkedHashMap<>();
+    // null while the builder has changes not indexed yet
+    private volatile SanitizerIndex snapshot;
+    // guarded by lock, the version of the next snapshot
+    private long version;
 
     @PostConstruct
     public void init() {
-        cacheHolder = new HashMap<>();
+        synchronized (lock) {
+            // keep the caching order, the first cached Sanitizer wins when several match one rule
+            cacheHolder = new LinkedHashMap<>();
+            snapshot = null;
+            version++;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        freeze();
+    }
+
+    /**
+     * Freeze the cached Sanitizers into an immutable snapshot
+     */
+    public void freeze() {
+        synchronized (lock) {
+            if (cacheHolder != null) {
+                snapshot = new SanitizerIndex(cacheHolder, version);
+                cacheHolder = null;
+                log.info("Frozen " + snapshot.entries().size() + " Sanitizer(s)");
+            }
+        }
+    }
+
+    public boolean isFrozen() {
+        synchronized (lock) {
+            return cacheHolder == null;
+        }
     }
 
     @Data
@@ -44,94 +89,137 @@ public class SanitizerCache {
     }
 
     public boolean exists(SanitizerCacheKey refKey) {
-        return cacheHolder.get(refKey) != null;
+        synchronized (lock) {
+            Map<SanitizerCacheKey, SanitizerDefinition> entries = cacheHolder != null ? cacheHolder : snapshot.entries();
+            return entries.get(refKey) != null;
+        }
     }
 
-    public Method get(SanitizerCacheKey refKey, boolean isDefault) {
-        ArrayList<BiPredicate<SanitizerCacheKey, SanitizerCacheKey>> predicates = new ArrayList<>();
-        if (isDefault) {
-            addDefaultPredicates(predicates);
-        } else {
-            addPredicates(predicates);
+    /**
+     * Lookup the Sanitizer by the rules 1 to 4, or by the default rules 5 and 6
+     *
+     * @param refKey    the key to lookup
+     * @param isDefault lookup the default Sanitizers only
+     * @return the Sanitizer, null if not found
+     */
+    public SanitizerDefinition get(SanitizerCacheKey refKey, boolean isDefault) {
+        return snapshot().get(refKey, isDefault);
+    }
+
+    private SanitizerIndex snapshot() {
+        SanitizerIndex current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lock) {
+            // still starting up, index what has been cached so far
+            if (snapshot == null) {
+                snapshot = new SanitizerIndex(cacheHolder != null ? cacheHolder : Collections.emptyMap(), version);
+            }
+            return snapshot;
         }
+    }
 
-        // lookup the method
-        Set<Map.Entry<SanitizerCacheKey, Method>> entries = cacheHolder.entrySet();
-        for (int i = 0; i < predicates.size(); i++) {
-            BiPredicate<SanitizerCacheKey, SanitizerCacheKey> predicate = predicates.get(i);
+    /**
+     * The version of the cached Sanitizers, changed by every put, register or unregister
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return snapshot().getVersion();
+    }
 
-            Optional<Map.Entry<SanitizerCacheKey, Method>> found;
-            if ((found = testCacheKey(refKey, entries, predicate)).isPresent()) {
-                log.debug("Found sanitizer [" + refKey + "] by rule#" + i + "!");
-                return found.get().getValue();
+    public void put(SanitizerCacheKey refKey, SanitizerDefinition definition) {
+        synchronized (lock) {
+            version++;
+            if (cacheHolder != null) {
+                cacheHolder.put(refKey, definition);
+                snapshot = null;
+            } else {
+                log.warn("Caching Sanitizer [" + refKey + "] after the cache is frozen, swapping in a new snapshot");
+                Map<SanitizerCacheKey, SanitizerDefinition> entries = new LinkedHashMap<>(snapshot.entries());
+                entries.put(refKey, definition);
+                snapshot = new SanitizerIndex(entries, version);
             }
         }
-        // nothing fond return null
-        log.debug("No sanitizer [" + refKey + "] found!");
-        return null;
     }
 
-    private void addPredicates(ArrayList<BiPredicate<SanitizerCacheKey, SanitizerCacheKey>> predicates) {
-        // 1. Type + className + sanitizerName
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> case1 = (key, ref) ->
-            new EqualsBuilder()
-                .append(key.getGenericTypeName(), ref.getGenericTypeName())
-                .append(key.getClassName(), ref.getClassName())
-                .append(key.getSanitizerName(), ref.getSanitizerName())
-                .isEquals();
-        predicates.add(case1);
-        // 2. Type + sanitizerName
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> case2 = (key, ref) ->
-            new EqualsBuilder()
-                .append(key.getGenericTypeName(), ref.getGenericTypeName())
-                .append(key.getSanitizerName(), ref.getSanitizerName())
-                .isEquals();
-        predicates.add(case2);
-        // 3. Type + className + methodName
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> case3 = (key, ref) ->
-            new EqualsBuilder()
-                .append(key.getGenericTypeName(), ref.getGenericTypeName())
-                .append(key.getClassName(), ref.getClassName())
-                .append(key.getMethodName(), ref.getMethodName())
-                .isEquals();
-        predicates.add(case3);
-        // 4. Type + methodName
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> case4 = (key, ref) ->
-            new EqualsBuilder()
-                .append(key.getGenericTypeName(), ref.getGenericTypeName())
-                .append(key.getMethodName(), ref.getMethodName())
-                .isEquals();
-        predicates.add(case4);
+    /**
+     * Register the Sanitizers at runtime, all of them published at once. A Sanitizer already cached by the same key is
+     * replaced in place, keeping its precedence among the Sanitizers matching one rule.
+     *
+     * @param definitions the Sanitizers by their keys
+     * @return the new version
+     */
+    public long register(Map<SanitizerCacheKey, SanitizerDefinition> definitions) {
+        return replace(Collections.emptySet(), definitions);
+    }
+
+    /**
+     * Unregister some Sanitizers and register others at runtime, all of them published at once, like the Sanitizers
+     * of a reloaded plugin. A Sanitizer both unregistered and registered is replaced in place.
+     *
+     * @param refKeys     the keys of the unregistered Sanitizers, the unknown ones are ignored
+     * @param definitions the registered Sanitizers by their keys
+     * @return the new version
+     */
+    public long replace(Collection<SanitizerCacheKey> refKeys, Map<SanitizerCacheKey, SanitizerDefinition> definitions) {
+        synchronized (lock) {
+            // the key is replaced too, its method name is not part of the equality
+            Map<SanitizerCacheKey, SanitizerCacheKey> newKeys = new HashMap<>();
+            definitions.keySet().forEach(key -> newKeys.put(key, key));
+            Set<SanitizerCacheKey> removedKeys = new HashSet<>(refKeys);
+            Map<SanitizerCacheKey, SanitizerDefinition> entries = new LinkedHashMap<>();
+            int replaced = 0;
+            int removed = 0;
+            for (Map.Entry<SanitizerCacheKey, SanitizerDefinition> entry : current().entrySet()) {
+                SanitizerCacheKey newKey = newKeys.get(entry.getKey());
+                if (newKey != null) {
+                    replaced++;
+                    entries.put(newKey, definitions.get(newKey));
+                } else if (removedKeys.contains(entry.getKey())) {
+                    removed++;
+                } else {
+                    entries.put(entry.getKey(), entry.getValue());
+                }
+            }
+            definitions.forEach(entries::putIfAbsent);
+            log.info("Registering " + definitions.size() + " Sanitizer(s), " + replaced + " replaced, " + removed +
+                " unregistered");
+            return publish(entries);
+        }
     }
 
-    private void addDefaultPredicates(ArrayList<BiPredicate<SanitizerCacheKey, SanitizerCacheKey>> predicates) {
-        // 5. Type + className + default
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> case5 = (key, ref) ->
-            new EqualsBuilder()
-                .append(key.getGenericTypeName(), ref.getGenericTypeName())
-                .append(key.getClassName(), ref.getClassName())
-                .append(key.getSanitizerName(), DEFAULT_KEY)
-                .isEquals();
-        predicates.add(case5);
-        // 6. Type + default
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> case6 = (key, ref) ->
-            new EqualsBuilder()
-                .append(key.getGenericTypeName(), ref.getGenericTypeName())
-                .append(key.getSanitizerName(), DEFAULT_KEY)
-                .isEquals();
-        predicates.add(case6);
+    /**
+     * Unregister the Sanitizers at runtime, all of them at once
+     *
+     * @param refKeys the keys of the Sanitizers, the unknown ones are ignored
+     * @return the new version
+     */
+    public long unregister(Collection<SanitizerCacheKey> refKeys) {
+        synchronized (lock) {
+            Map<SanitizerCacheKey, SanitizerDefinition> entries = new LinkedHashMap<>(current());
+            int size = entries.size();
+            entries.keySet().removeAll(new HashSet<>(refKeys));
+            log.info("Unregistering " + (size - entries.size()) + " Sanitizer(s)");
+            return publish(entries);
+        }
     }
 
-    private Optional<Map.Entry<SanitizerCacheKey, Method>> testCacheKey(
-        SanitizerCacheKey refKey, Set<Map.Entry<SanitizerCacheKey, Method>> entries,
-        BiPredicate<SanitizerCacheKey, SanitizerCacheKey> predicate) {
-        return entries.stream().filter(k -> {
-            SanitizerCacheKey key = k.getKey();
-            return predicate.test(key, refKey);
-        }).findFirst();
+    // guarded by lock
+    private Map<SanitizerCacheKey, SanitizerDefinition> current() {
+        return cacheHolder != null ? cacheHolder : snapshot.entries();
     }
 
-    public void put(SanitizerCacheKey refKey, Method method) {
-        this.cacheHolder.put(refKey, method);
+    // guarded by lock
+    private long publish(Map<SanitizerCacheKey, SanitizerDefinition> entries) {
+        version++;
+        if (cacheHolder != null) {
+            cacheHolder = entries;
+            snapshot = null;
+        } else {
+            snapshot = new SanitizerIndex(entries, version);
+        }
+        return version;
     }
 }
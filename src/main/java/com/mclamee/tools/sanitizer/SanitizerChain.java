@@ -0,0 +1,83 @@
+package com.mclamee.tools.sanitizer;
+
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
+
+/**
+ * Compose the Sanitizers of a {@code @Sanitized} chain into a single invoker
+ */
+final class SanitizerChain {
+
+    private SanitizerChain() {
+    }
+
+    /**
+     * Apply the Sanitizers in order, each on the result of the previous one
+     *
+     * @param links the resolved Sanitizers
+     * @return the composed invoker
+     */
+    static SanitizerInvoker compose(ResolvedSanitizer<?>[] links) {
+        SanitizerInvoker[] invokers = new SanitizerInvoker[links.length];
+        for (int i = 0; i < links.length; i++) {
+            invokers[i] = links[i].getInvoker();
+        }
+        return value -> {
+            Object sanitized = value;
+            for (SanitizerInvoker invoker : invokers) {
+                sanitized = invoker.invoke(sanitized);
+            }
+            return sanitized;
+        };
+    }
+
+    /**
+     * The char level Sanitizers of the links if they can all be fused
+     *
+     * @param links the resolved Sanitizers of Strings
+     * @return the stages in order, null if any link is not fusable
+     */
+    static CharSanitizer[] stages(ResolvedSanitizer<?>[] links) {
+        CharSanitizer[] stages = new CharSanitizer[links.length];
+        for (int i = 0; i < links.length; i++) {
+            if (links[i].isLifted() || links[i].getSanitizer().getCharSanitizer() == null) {
+                return null;
+            }
+            stages[i] = links[i].getSanitizer().getCharSanitizer();
+        }
+        return stages;
+    }
+
+    /**
+     * Push the chars of the String through all the stages in a single pass into one buffer
+     *
+     * @param stages the char level Sanitizers in order
+     * @return the fused invoker, returning the input itself if nothing changed
+     */
+    static SanitizerInvoker fuse(CharSanitizer[] stages) {
+        return value -> {
+            if (value == null) {
+                return null;
+            }
+            String str = (String) value;
+            StringBuilder out = new StringBuilder(str.length());
+            CharSanitizer.Sink sink = new CharSanitizer.Sink() {
+                @Override
+                public void append(char c) {
+                    out.append(c);
+                }
+
+                @Override
+                public void end() {
+                }
+            };
+            for (int i = stages.length - 1; i >= 0; i--) {
+                sink = stages[i].open(sink);
+            }
+            for (int i = 0; i < str.length(); i++) {
+                sink.append(str.charAt(i));
+            }
+            sink.end();
+            return out.length() == str.length() && str.contentEquals(out) ? str : out.toString();
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.reflect.Method;
+
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
+import com.mclamee.tools.sanitizer.util.StringDeduplicator;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+
+/**
+ * A cached Sanitizer: the annotated static method and the invoker to call it
+ * <p>
+ * The invoker of a {@link Sanitizer#pure()} Sanitizer goes through its {@link SanitizerResultCache}, the results of a
+ * {@link Sanitizer#dedup()} Sanitizer through the {@link StringDeduplicator#DEFAULT} table.
+ */
+@Getter
+@ToString(of = "method")
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class SanitizerDefinition {
+    private final Method method;
+    private final SanitizerInvoker invoker;
+    // null unless the Sanitizer is pure
+    private final SanitizerResultCache resultCache;
+    // null unless the Sanitizer is fusable
+    private final CharSanitizer charSanitizer;
+    private final boolean idempotent;
+
+    /**
+     * Create the definition of a static Sanitizer method, see {@link SanitizerInvokers#create(Method)}
+     *
+     * @param method the static Sanitizer method
+     * @return the definition
+     */
+    public static SanitizerDefinition of(Method method) {
+        SanitizerInvoker invoker = SanitizerInvokers.create(method);
+        Sanitizer annotation = AnnotationUtils.getAnnotation(method, Sanitizer.class);
+        CharSanitizer charSanitizer = annotation == null || annotation.fused() == CharSanitizer.class ||
+            annotation.pure() || annotation.dedup() ? null : BeanUtils.instantiateClass(annotation.fused());
+        if (annotation != null && annotation.dedup()) {
+            SanitizerInvoker sanitizer = invoker;
+            invoker = value -> StringDeduplicator.DEFAULT.dedup((String) sanitizer.invoke(value));
+        }
+        boolean idempotent = annotation != null && annotation.idempotent();
+        if (annotation == null || !annotation.pure()) {
+            return new SanitizerDefinition(method, invoker, null, charSanitizer, idempotent);
+        }
+        SanitizerResultCache resultCache = new SanitizerResultCache(invoker, annotation.cacheSize(),
+            annotation.weighByLength());
+        return new SanitizerDefinition(method, resultCache, resultCache, null, idempotent);
+    }
+
+    public Object invoke(Object value) throws Throwable {
+        return invoker.invoke(value);
+    }
+}
@@ -0,0 +1,309 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+
+import com.mclamee.tools.sanitizer.metrics.SanitizerMetricKey;
+import com.mclamee.tools.sanitizer.metrics.SanitizerMetrics;
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sanitize values programmatically, without proxies
+ * <p>
+ * The Sanitizers are resolved by the same rules as the {@code @Sanitized} parameters: by name, then the default
+ * Sanitizer of the type, then the element Sanitizer lifted over a container, a future or a publisher, then the
+ * {@code @Sanitized} fields of a VO. Hold the {@link ResolvedSanitizer} of {@link #resolver(Class, String)} to
+ * sanitize many values with a single lookup, it keeps the Sanitizers it resolved when they are replaced at runtime.
+ */
+@Slf4j
+@Component
+public class SanitizerEngine {
+
+    @Autowired
+    private SanitizerCache cache;
+
+    @Value("${sanitizer.parallel-threshold:10000}")
+    private int parallelThreshold;
+
+    @Value("${sanitizer.scan.skip-packages:java.,javax.,jdk.,sun.,com.sun.,org.springframework.,org.aspectj.}")
+    private String[] skipPackages;
+
+    private SanitizerFields fields;
+
+    @PostConstruct
+    public void init() {
+        fields = new SanitizerFields(this, skipPackages);
+    }
+
+    private SanitizerMetrics metrics = SanitizerMetrics.NOOP;
+
+    @Autowired(required = false)
+    public void setMetrics(SanitizerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sanitize the value by the named Sanitizer of its type
+     *
+     * @param value the value
+     * @param type  the type of the Sanitizer
+     * @param name  the Sanitizer name, the default Sanitizer if empty
+     * @param <T>   the sanitized type
+     * @return the sanitized value
+     */
+    public <T> T sanitize(T value, Class<T> type, String name) {
+        return resolver(type, name).sanitize(value);
+    }
+
+    /**
+     * Sanitize the value by the named Sanitizer of a generic type, like {@code List<UserVo>}
+     *
+     * @param value the value
+     * @param type  the generic type of the Sanitizer
+     * @param name  the Sanitizer name, the default Sanitizer if empty
+     * @return the sanitized value
+     */
+    public Object sanitize(Object value, Type type, String name) {
+        return resolver(type, name).sanitize(value);
+    }
+
+    /**
+     * Resolve the named Sanitizer of the type once
+     *
+     * @param type the type of the Sanitizer
+     * @param name the Sanitizer name, the default Sanitizer if empty
+     * @param <T>  the sanitized type
+     * @return the resolved Sanitizer
+     * @throws IllegalArgumentException if no Sanitizer is found
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResolvedSanitizer<T> resolver(Class<T> type, String name) {
+        return (ResolvedSanitizer<T>) resolver(null, type, name);
+    }
+
+    /**
+     * Resolve the named Sanitizer of the generic type once
+     *
+     * @param type the generic type of the Sanitizer
+     * @param name the Sanitizer name, the default Sanitizer if empty
+     * @return the resolved Sanitizer
+     * @throws IllegalArgumentException if no Sanitizer is found
+     */
+    public ResolvedSanitizer<Object> resolver(Type type, String name) {
+        return resolver(null, type, name);
+    }
+
+    /**
+     * Resolve the named Sanitizer of the generic type once, preferring the Sanitizers declared by the scope class
+     *
+     * @param scope the class whose Sanitizers are looked up first, may be null
+     * @param type  the generic type of the Sanitizer
+     * @param name  the Sanitizer name, the default Sanitizer if empty
+     * @return the resolved Sanitizer
+     * @throws IllegalArgumentException if no Sanitizer is found
+     */
+    public ResolvedSanitizer<Object> resolver(Class<?> scope, Type type, String name) {
+        SanitizerCache.SanitizerCacheKey refKey = key(scope == null ? null : scope.getName(), type, name);
+        ResolvedSanitizer<Object> resolved = resolve(refKey, type);
+        if (resolved == null) {
+            throw new IllegalArgumentException("No default Sanitizer found for " + type.getTypeName() + " named " +
+                refKey.getSanitizerName());
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolve a chain of named Sanitizers of the generic type once into a single invoker, applying them in order
+     *
+     * @param scope the class whose Sanitizers are looked up first, may be null
+     * @param type  the generic type of the Sanitizers
+     * @param names the Sanitizer names, the default Sanitizer for an empty one or for no names at all
+     * @return the resolved chain
+     * @throws IllegalArgumentException if a Sanitizer of the chain is not found
+     */
+    public ResolvedSanitizer<Object> chain(Class<?> scope, Type type, String... names) {
+        ResolvedSanitizer<Object> resolved = resolve(scope == null ? null : scope.getName(), type, names);
+        if (resolved == null) {
+            throw new IllegalArgumentException("No default Sanitizer found for " + type.getTypeName() + " named " +
+                String.join(",", names));
+        }
+        return resolved;
+    }
+
+    /**
+     * The version of the cached Sanitizers, the plans resolved from an older version must be resolved again
+     *
+     * @return the version
+     */
+    long version() {
+        return cache.getVersion();
+    }
+
+    static SanitizerCache.SanitizerCacheKey key(String className, Type type, String name) {
+        String sanitizerName = StringUtils.isEmpty(name) ? SanitizerCache.DEFAULT_KEY : name;
+        return SanitizerCache.SanitizerCacheKey.builder()
+            .className(className)
+            .genericTypeName(type.getTypeName())
+            .sanitizerName(sanitizerName)
+            .methodName(sanitizerName) // cannot get method name, so use sanitizer name instead
+            .build();
+    }
+
+    /**
+     * Resolve the chain of named Sanitizers: a single name is resolved by its key, no names at all by the default key,
+     * a chain of fusable String Sanitizers is fused into a single pass, any other chain is composed
+     * <p>
+     * A fused chain is instrumented as a whole, under the Sanitizer methods of its links joined by commas; a composed
+     * chain is lifted only if all its links are.
+     *
+     * @param className the class whose Sanitizers are looked up first, may be null
+     * @param type      the generic type of the Sanitizers
+     * @param names     the Sanitizer names
+     * @return the resolved Sanitizer, null if any Sanitizer of the chain is not found
+     */
+    ResolvedSanitizer<Object> resolve(String className, Type type, String[] names) {
+        if (names.length <= 1) {
+            return resolve(key(className, type, names.length == 0 ? null : names[0]), type);
+        }
+        @SuppressWarnings("unchecked")
+        ResolvedSanitizer<Object>[] links = new ResolvedSanitizer[names.length];
+        boolean fallback = false;
+        boolean lifted = true;
+        for (int i = 0; i < names.length; i++) {
+            links[i] = resolve(key(className, type, names[i]), type);
+            if (links[i] == null) {
+                return null;
+            }
+            if (links[i].getSanitizer() == null) {
+                throw new IllegalArgumentException("The @Sanitized fields of " + type.getTypeName() + " cannot be chained");
+            }
+            fallback |= links[i].isFallback();
+            lifted &= links[i].isLifted();
+        }
+        SanitizerCache.SanitizerCacheKey chainKey = key(className, type, String.join(",", names));
+
+        CharSanitizer[] stages = type == String.class ? SanitizerChain.stages(links) : null;
+        if (stages != null) {
+            log.info("Fusing the Sanitizers " + chainKey.getSanitizerName() + " into a single pass");
+            // instrumented as a whole, the links are not invoked one by one
+            String sanitizer = Arrays.stream(links).map(link -> methodName(link.getSanitizer()))
+                .collect(Collectors.joining(","));
+            return instrument(new ResolvedSanitizer<>(chainKey, links[0].getSanitizer(), SanitizerChain.fuse(stages),
+                fallback, false), sanitizer);
+        }
+        // each link is instrumented by its own Sanitizer
+        return new ResolvedSanitizer<>(chainKey, links[0].getSanitizer(), SanitizerChain.compose(links), fallback, lifted);
+    }
+
+    /**
+     * Resolve the Sanitizer of the key: by the rules 1 to 4, then the default rules, then lifted over a container or
+     * downstream of a future or a publisher, then walking the {@code @Sanitized} fields
+     *
+     * @param refKey the key to lookup
+     * @param type   the generic type of the key
+     * @return the resolved Sanitizer, instrumented by the metrics, null if not found
+     */
+    ResolvedSanitizer<Object> resolve(SanitizerCache.SanitizerCacheKey refKey, Type type) {
+        ResolvedSanitizer<Object> resolved = resolveLifted(refKey, type);
+        if (resolved != null) {
+            return instrument(resolved, methodName(resolved.getSanitizer()));
+        }
+        Type valueType = SanitizerAsync.valueType(type);
+        if (valueType != null) {
+            // sanitized downstream of the future or the publisher, each value instrumented by its own Sanitizer
+            ResolvedSanitizer<Object> value = resolve(SanitizerEngine.key(refKey.getClassName(), valueType,
+                refKey.getSanitizerName()), valueType);
+            if (value == null) {
+                return null;
+            }
+            log.info("Sanitizing the values of " + type.getTypeName() + " asynchronously");
+            return new ResolvedSanitizer<>(refKey, value.getSanitizer(), SanitizerAsync.lift(type, value),
+                value.isFallback(), true);
+        }
+        if (!fields.isWalkable(type)) {
+            return null;
+        }
+        log.info("Sanitizing the @Sanitized fields of " + type.getTypeName());
+        // the field Sanitizers are instrumented each
+        return new ResolvedSanitizer<>(refKey, null, fields::sanitize, false, false);
+    }
+
+
+    private ResolvedSanitizer<Object> resolveLifted(SanitizerCache.SanitizerCacheKey refKey, Type type) {
+        SanitizerDefinition sanitizer = cache.get(refKey, false);
+        boolean fallback = false;
+        if (sanitizer == null) {
+            log.warn("No Sanitizer found by Key [" + refKey + "]");
+
+            sanitizer = cache.get(refKey, true);
+            if (sanitizer != null) {
+                log.info("Using Default Sanitizer: [" + sanitizer + "]");
+                fallback = true;
+            }
+        }
+        if (sanitizer != null) {
+            return new ResolvedSanitizer<>(refKey, sanitizer, sanitizer.getInvoker(), fallback, false);
+        }
+
+        // no Sanitizer of the container, lift the Sanitizer of its elements
+        Type elementType = SanitizerLifting.elementType(type);
+        if (elementType == null) {
+            return null;
+        }
+        SanitizerCache.SanitizerCacheKey elementKey = SanitizerCache.SanitizerCacheKey.builder()
+            .className(refKey.getClassName())
+            .genericTypeName(elementType.getTypeName())
+            .sanitizerName(refKey.getSanitizerName())
+            .methodName(refKey.getMethodName())
+            .build();
+        ResolvedSanitizer<Object> element = resolveLifted(elementKey, elementType);
+        if (element == null) {
+            return null;
+        }
+        log.info("Lifting Sanitizer [" + element.getSanitizer() + "] over " + type.getTypeName());
+        SanitizerInvoker invoker = SanitizerLifting.lift(type, element.getInvoker(), parallelThreshold,
+            ForkJoinPool.commonPool());
+        return new ResolvedSanitizer<>(refKey, element.getSanitizer(), invoker, element.isFallback(), true);
+    }
+
+    private static String methodName(SanitizerDefinition sanitizer) {
+        Method method = sanitizer.getMethod();
+        return method.getDeclaringClass().getName() + "." + method.getName();
+    }
+
+    private ResolvedSanitizer<Object> instrument(ResolvedSanitizer<Object> resolved, String sanitizer) {
+        SanitizerMetricKey metricKey = new SanitizerMetricKey(sanitizer, resolved.getKey().getSanitizerName(),
+            resolved.isFallback(), resolved.isLifted());
+        SanitizerMetrics.Recorder recorder = metrics.resolved(metricKey);
+        if (recorder == SanitizerMetrics.Recorder.NOOP) {
+            return resolved;
+        }
+
+        SanitizerInvoker invoker = resolved.getInvoker();
+        SanitizerInvoker instrumented = value -> {
+            long start = System.nanoTime();
+            Object sanitized;
+            try {
+                sanitized = invoker.invoke(value);
+            } catch (Throwable e) {
+                recorder.record(System.nanoTime() - start, false, e);
+                throw e;
+            }
+            recorder.record(System.nanoTime() - start, sanitized != value && !Objects.equals(value, sanitized), null);
+            return sanitized;
+        };
+        return new ResolvedSanitizer<>(resolved.getKey(), resolved.getSanitizer(), instrumented, resolved.isFallback(),
+            resolved.isLifted());
+    }
+}
@@ -0,0 +1,244 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ResolvableType;
+
+/**
+ * Sanitize the {@code @Sanitized} fields of the VOs, walking their object graph
+ * <p>
+ * Each class is compiled once into a plan of MethodHandle accessors and resolved Sanitizers. Fields holding nested
+ * VOs, arrays, collections or map values are walked only when their declared type can reach a {@code @Sanitized}
+ * field, an object or a container is walked once per call so that cycles terminate. A plan of an older version of the cached
+ * Sanitizers is compiled again on its next use.
+ */
+@Slf4j
+final class SanitizerFields {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final FieldStep[] NONE = new FieldStep[0];
+
+    private final SanitizerEngine engine;
+    private final String[] skipPackages;
+    private final ConcurrentMap<Class<?>, Plan> plans = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Boolean> walkable = new ConcurrentHashMap<>();
+
+    SanitizerFields(SanitizerEngine engine, String[] skipPackages) {
+        this.engine = engine;
+        this.skipPackages = skipPackages.clone();
+    }
+
+    /**
+     * The steps of a class, stamped by the version of the cached Sanitizers they were resolved from
+     */
+    @AllArgsConstructor
+    private static class Plan {
+        private final long version;
+        private final FieldStep[] steps;
+    }
+
+    /**
+     * Sanitization of one field: by its Sanitizer, or walking into its value when the sanitizer is null
+     */
+    @AllArgsConstructor
+    private static class FieldStep {
+        private final Field field;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ResolvedSanitizer<Object> sanitizer;
+    }
+
+    /**
+     * Whether the values of the type can hold {@code @Sanitized} fields, directly or in nested VOs and containers
+     *
+     * @param type the generic type
+     * @return true if the values must be walked
+     */
+    boolean isWalkable(Type type) {
+        return isWalkable(type, new HashSet<>());
+    }
+
+    /**
+     * Sanitize the fields of the value and of its nested values in place
+     *
+     * @param value the VO, an array, a collection or a map of VOs
+     * @return the value
+     * @throws Throwable any exception thrown by the Sanitizers
+     */
+    Object sanitize(Object value) throws Throwable {
+        walk(value, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return value;
+    }
+
+    private void walk(Object value, Set<Object> visited) throws Throwable {
+        if (value == null) {
+            return;
+        }
+        boolean container = value instanceof Object[] || value instanceof Iterable || value instanceof Map;
+        if (container && !visited.add(value)) {
+            // a container holding itself, or reached again through a VO
+            return;
+        }
+        if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                walk(element, visited);
+            }
+        } else if (value instanceof Iterable) {
+            for (Object element : (Iterable<?>) value) {
+                walk(element, visited);
+            }
+        } else if (value instanceof Map) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                walk(element, visited);
+            }
+        } else {
+            FieldStep[] steps = plan(value.getClass());
+            if (steps.length == 0 || !visited.add(value)) {
+                return;
+            }
+            for (FieldStep step : steps) {
+                Object fieldValue = step.getter.invokeExact(value);
+                if (step.sanitizer == null) {
+                    walk(fieldValue, visited);
+                    continue;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Invoking Sanitizer [" + step.sanitizer.getKey() + "] on field " + step.field + ", value = " + fieldValue);
+                }
+                Object sanitized = step.sanitizer.getInvoker().invoke(fieldValue);
+                if (sanitized != fieldValue) {
+                    step.setter.invokeExact(value, sanitized);
+                }
+            }
+        }
+    }
+
+    private FieldStep[] plan(Class<?> type) {
+        // read before compiling, a plan racing with a change is stamped older and compiled again
+        long version = engine.version();
+        Plan plan = plans.get(type);
+        if (plan == null || plan.version != version) {
+            // compiling resolves the field Sanitizers, which never compiles another plan, so no recursive update
+            plan = new Plan(version, compile(type));
+            plans.put(type, plan);
+        }
+        return plan.steps;
+    }
+
+    private FieldStep[] compile(Class<?> type) {
+        if (!isWalkable(type)) {
+            return NONE;
+        }
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<FieldStep> steps = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                Sanitized annotation = field.getAnnotation(Sanitized.class);
+                Type fieldType = field.getGenericType();
+                ResolvedSanitizer<Object> sanitizer = null;
+                if (annotation != null) {
+                    sanitizer = engine.resolve(c.getName(), fieldType, annotation.value());
+                    if (sanitizer == null) {
+                        throw new IllegalArgumentException("No default Sanitizer found for the field " + field);
+                    }
+                    if (sanitizer.getSanitizer() == null) {
+                        // a nested VO, walked within the same call
+                        sanitizer = null;
+                    }
+                } else if (!isWalkable(fieldType)) {
+                    continue;
+                }
+                steps.add(step(lookup, field, sanitizer));
+            }
+        }
+        log.debug("Compiled field sanitization plan of " + type + " with " + steps.size() + " step(s)");
+        return steps.toArray(NONE);
+    }
+
+    private static FieldStep step(MethodHandles.Lookup lookup, Field field, ResolvedSanitizer<Object> sanitizer) {
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            MethodHandle setter = sanitizer == null ? null : lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            return new FieldStep(field, getter, setter, sanitizer);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot access the sanitized field " + field, e);
+        }
+    }
+
+    private boolean isWalkable(Type type, Set<Class<?>> visiting) {
+        Type elementType = SanitizerLifting.elementType(type);
+        if (elementType != null) {
+            return isWalkable(elementType, visiting);
+        }
+        Class<?> rawClass = ResolvableType.forType(type).resolve();
+        if (rawClass == null || rawClass.isPrimitive() || rawClass.isEnum() || rawClass.isArray() || isSkipped(rawClass)) {
+            return false;
+        }
+        Boolean cached = walkable.get(rawClass);
+        if (cached != null) {
+            return cached;
+        }
+        if (!visiting.add(rawClass)) {
+            // a cycle, the class is walkable by its other fields if any
+            return false;
+        }
+        boolean result = hasSanitizedFields(rawClass, visiting);
+        visiting.remove(rawClass);
+        if (visiting.isEmpty()) {
+            // classes within a cycle are cached by the outermost call only
+            walkable.put(rawClass, result);
+        }
+        return result;
+    }
+
+    private boolean hasSanitizedFields(Class<?> type, Set<Class<?>> visiting) {
+        List<Type> nested = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                if (field.isAnnotationPresent(Sanitized.class)) {
+                    return true;
+                }
+                nested.add(field.getGenericType());
+            }
+        }
+        for (Type fieldType : nested) {
+            if (isWalkable(fieldType, visiting)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSkipped(Class<?> type) {
+        String className = type.getName();
+        for (String skipPackage : skipPackages) {
+            if (className.startsWith(skipPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
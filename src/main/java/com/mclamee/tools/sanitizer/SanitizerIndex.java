@@ -0,0 +1,136 @@
+package com.mclamee.tools.sanitizer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable snapshot of the cached Sanitizers, indexed by generic type, then class, then sanitizer or method name.
+ * Every rule of {@link SanitizerCache#get(SanitizerCache.SanitizerCacheKey, boolean)} is answered by hash probes
+ * only; when several Sanitizers match one rule, the first cached one wins.
+ * <p>
+ * The resolved keys, misses included, are memorized up to {@link #RESOLVED_CACHE_SIZE} so that arbitrary names
+ * resolved at runtime cannot grow the snapshot without limit.
+ */
+@Slf4j
+final class SanitizerIndex {
+    static final int RESOLVED_CACHE_SIZE = 4096;
+
+    private final Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> entries;
+    private final long version;
+    private final Map<String, TypeIndex> types = new HashMap<>();
+    // results, including misses, are memorized for the lifetime of the snapshot, maintained on the calling thread
+    private final Cache<ResolvedKey, Optional<SanitizerDefinition>> resolvedCache = Caffeine.newBuilder()
+        .executor(Runnable::run).maximumSize(RESOLVED_CACHE_SIZE).build();
+
+    SanitizerIndex(Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> entries, long version) {
+        this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+        this.version = version;
+        this.entries.forEach((key, definition) -> types.computeIfAbsent(key.getGenericTypeName(), t -> new TypeIndex()).add(key, definition));
+    }
+
+    Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> entries() {
+        return entries;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    SanitizerDefinition get(SanitizerCache.SanitizerCacheKey refKey, boolean isDefault) {
+        ResolvedKey resolvedKey = new ResolvedKey(refKey.getGenericTypeName(), refKey.getClassName(),
+            refKey.getSanitizerName(), refKey.getMethodName(), isDefault);
+        Optional<SanitizerDefinition> resolved = resolvedCache.getIfPresent(resolvedKey);
+        if (resolved == null) {
+            resolved = Optional.ofNullable(resolve(refKey, isDefault));
+            resolvedCache.put(resolvedKey, resolved);
+        }
+        return resolved.orElse(null);
+    }
+
+    private SanitizerDefinition resolve(SanitizerCache.SanitizerCacheKey refKey, boolean isDefault) {
+        // 1. Type + className + sanitizerName
+        // 2. Type + sanitizerName
+        // 3. Type + className + methodName
+        // 4. Type + methodName
+        // 5. Type + className + default
+        // 6. Type + default
+        int firstRule = isDefault ? 5 : 1;
+        int lastRule = isDefault ? 6 : 4;
+        for (int rule = firstRule; rule <= lastRule; rule++) {
+            SanitizerDefinition found = lookup(rule, refKey);
+            if (found != null) {
+                log.debug("Found sanitizer [" + refKey + "] by rule#" + rule + "!");
+                return found;
+            }
+        }
+        // nothing fond return null
+        log.debug("No sanitizer [" + refKey + "] found!");
+        return null;
+    }
+
+    /**
+     * Lookup the Sanitizer by the given rule
+     *
+     * @param rule   the rule number, 1 to 6
+     * @param refKey the key to lookup
+     * @return the Sanitizer, null if not found
+     */
+    private SanitizerDefinition lookup(int rule, SanitizerCache.SanitizerCacheKey refKey) {
+        TypeIndex type = types.get(refKey.getGenericTypeName());
+        if (type == null) {
+            return null;
+        }
+        switch (rule) {
+            case 1:
+                return get(type.byClassAndSanitizer, refKey.getClassName(), refKey.getSanitizerName());
+            case 2:
+                return type.bySanitizer.get(refKey.getSanitizerName());
+            case 3:
+                return get(type.byClassAndMethod, refKey.getClassName(), refKey.getMethodName());
+            case 4:
+                return type.byMethod.get(refKey.getMethodName());
+            case 5:
+                return get(type.byClassAndSanitizer, refKey.getClassName(), SanitizerCache.DEFAULT_KEY);
+            case 6:
+                return type.bySanitizer.get(SanitizerCache.DEFAULT_KEY);
+            default:
+                throw new IllegalArgumentException("Unknown rule#" + rule);
+        }
+    }
+
+    private static SanitizerDefinition get(Map<String, Map<String, SanitizerDefinition>> index, String className, String name) {
+        Map<String, SanitizerDefinition> byName = index.get(className);
+        return byName == null ? null : byName.get(name);
+    }
+
+    @Value
+    private static class ResolvedKey {
+        String genericTypeName;
+        String className;
+        String sanitizerName;
+        String methodName;
+        boolean isDefault;
+    }
+
+    private static final class TypeIndex {
+        private final Map<String, Map<String, SanitizerDefinition>> byClassAndSanitizer = new HashMap<>();
+        private final Map<String, SanitizerDefinition> bySanitizer = new HashMap<>();
+        private final Map<String, Map<String, SanitizerDefinition>> byClassAndMethod = new HashMap<>();
+        private final Map<String, SanitizerDefinition> byMethod = new HashMap<>();
+
+        private void add(SanitizerCache.SanitizerCacheKey key, SanitizerDefinition definition) {
+            byClassAndSanitizer.computeIfAbsent(key.getClassName(), c -> new HashMap<>()).putIfAbsent(key.getSanitizerName(), definition);
+            bySanitizer.putIfAbsent(key.getSanitizerName(), definition);
+            byClassAndMethod.computeIfAbsent(key.getClassName(), c -> new HashMap<>()).putIfAbsent(key.getMethodName(), definition);
+            byMethod.putIfAbsent(key.getMethodName(), definition);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.mclamee.tools.sanitizer;
+
+/**
+ * Strongly typed call of a Sanitizer, created once when the Sanitizer is cached
+ */
+@FunctionalInterface
+public interface SanitizerInvoker {
+    /**
+     * Sanitize the value
+     *
+     * @param value the value to sanitize
+     * @return the sanitized value
+     * @throws Throwable any exception thrown by the Sanitizer, not wrapped
+     */
+    Object invoke(Object value) throws Throwable;
+}
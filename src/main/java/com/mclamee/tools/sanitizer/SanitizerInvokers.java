@@ -0,0 +1,79 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Factory of {@link SanitizerInvoker}s for static Sanitizer methods
+ */
+@Slf4j
+final class SanitizerInvokers {
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(SanitizerInvoker.class);
+
+    private SanitizerInvokers() {
+    }
+
+    /**
+     * Spin a lambda implementing {@link SanitizerInvoker} with {@link LambdaMetafactory}, so the Sanitizer is called
+     * directly and can be inlined. Methods which cannot be linked from this class, like non-public or invisible ones,
+     * fall back to a {@link MethodHandle} held by the invoker.
+     *
+     * @param method the static Sanitizer method
+     * @return the invoker
+     */
+    static SanitizerInvoker create(Method method) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("Sanitizer method must be static: " + method);
+        }
+        if (method.getParameterCount() != 1) {
+            throw new IllegalArgumentException("Sanitizer method must accept one parameter: " + method);
+        }
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        if (isLinkable(method)) {
+            try {
+                MethodHandle target = lookup.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "invoke", FACTORY_TYPE, INVOKE_TYPE, target,
+                    target.type().wrap());
+                return (SanitizerInvoker) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                log.debug("Cannot spin a lambda for Sanitizer " + method + ", using a MethodHandle instead", e);
+            }
+        }
+        try {
+            method.setAccessible(true); // make it public
+            MethodHandle handle = lookup.unreflect(method).asType(INVOKE_TYPE);
+            return value -> (Object) handle.invokeExact(value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Sanitizer method is not accessible: " + method, e);
+        }
+    }
+
+    private static boolean isLinkable(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) {
+            return false;
+        }
+        for (Class<?> c = method.getDeclaringClass(); c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        // the lambda is defined by this class, so all the types in the signature must be visible from here
+        ClassLoader classLoader = SanitizerInvokers.class.getClassLoader();
+        return isVisible(method.getDeclaringClass(), classLoader)
+            && isVisible(method.getParameterTypes()[0], classLoader)
+            && isVisible(method.getReturnType(), classLoader);
+    }
+
+    private static boolean isVisible(Class<?> type, ClassLoader classLoader) {
+        return type.isPrimitive() || ClassUtils.isVisible(type, classLoader);
+    }
+}
@@ -0,0 +1,191 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import lombok.SneakyThrows;
+
+/**
+ * Lift a Sanitizer of an element type over {@link List}s, {@link Set}s, arrays and {@link Map} values of it
+ * <p>
+ * Containers are sanitized in place when they can be modified, otherwise a copy is returned. Sets are refilled in
+ * place only when of a JDK type known to support adding, other sets, like the key set view of a map, are copied
+ * rather than emptied. Containers larger than
+ * the parallel threshold are split across a {@link ForkJoinPool} by a {@link Spliterator} over their indices.
+ */
+final class SanitizerLifting {
+    private SanitizerLifting() {
+    }
+
+    /**
+     * The element type of a container type which can be lifted
+     *
+     * @param type the container type
+     * @return the element type, null if the type is not a supported container
+     */
+    static Type elementType(Type type) {
+        if (type instanceof Class && ((Class<?>) type).isArray() && !((Class<?>) type).getComponentType().isPrimitive()) {
+            return ((Class<?>) type).getComponentType();
+        }
+        if (type instanceof GenericArrayType) {
+            return ((GenericArrayType) type).getGenericComponentType();
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (List.class.isAssignableFrom(raw) || Set.class.isAssignableFrom(raw)) {
+                return upperBound(arguments[0]);
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                return upperBound(arguments[1]);
+            }
+        }
+        return null;
+    }
+
+    private static Type upperBound(Type type) {
+        return type instanceof WildcardType ? ((WildcardType) type).getUpperBounds()[0] : type;
+    }
+
+    /**
+     * Lift the element Sanitizer over the container type
+     *
+     * @param type              the container type, see {@link #elementType(Type)}
+     * @param element           the element Sanitizer
+     * @param parallelThreshold the size from which the elements are sanitized in parallel
+     * @param pool              the pool to sanitize in parallel
+     * @return the Sanitizer of the container
+     */
+    @SuppressWarnings("unchecked")
+    static SanitizerInvoker lift(Type type, SanitizerInvoker element, int parallelThreshold, ForkJoinPool pool) {
+        if (type instanceof Class || type instanceof GenericArrayType) {
+            return value -> value == null ? null : sanitize((Object[]) value, element, parallelThreshold, pool);
+        }
+        Class<?> raw = (Class<?>) ((ParameterizedType) type).getRawType();
+        if (List.class.isAssignableFrom(raw)) {
+            return value -> value == null ? null : sanitizeList((List<Object>) value, element, parallelThreshold, pool);
+        }
+        if (Set.class.isAssignableFrom(raw)) {
+            return value -> value == null ? null : sanitizeSet((Set<Object>) value, element, parallelThreshold, pool);
+        }
+        return value -> value == null ? null : sanitizeMap((Map<Object, Object>) value, element, parallelThreshold, pool);
+    }
+
+    private static List<Object> sanitizeList(List<Object> list, SanitizerInvoker element, int parallelThreshold, ForkJoinPool pool) throws Throwable {
+        Object[] sanitized = sanitize(list.toArray(), element, parallelThreshold, pool);
+        try {
+            // a single pass, not a copy per element of a CopyOnWriteArrayList nor a walk per element of a LinkedList
+            int[] index = new int[1];
+            list.replaceAll(value -> sanitized[index[0]++]);
+            return list;
+        } catch (UnsupportedOperationException e) {
+            return new ArrayList<>(Arrays.asList(sanitized));
+        }
+    }
+
+    private static Set<Object> sanitizeSet(Set<Object> set, SanitizerInvoker element, int parallelThreshold, ForkJoinPool pool) throws Throwable {
+        Object[] sanitized = sanitize(set.toArray(), element, parallelThreshold, pool);
+        // sanitized elements may have other hash codes, the set is refilled
+        List<Object> elements = Arrays.asList(sanitized);
+        if (!isRefillable(set)) {
+            // like a key set view or an unmodifiable set, left unchanged
+            return new LinkedHashSet<>(elements);
+        }
+        set.clear();
+        set.addAll(elements);
+        return set;
+    }
+
+    // known to support add, so that a set is never cleared then left empty
+    private static boolean isRefillable(Set<Object> set) {
+        return set instanceof HashSet || set instanceof TreeSet || set instanceof ConcurrentSkipListSet ||
+            set instanceof CopyOnWriteArraySet;
+    }
+
+    private static Map<Object, Object> sanitizeMap(Map<Object, Object> map, SanitizerInvoker element, int parallelThreshold, ForkJoinPool pool) throws Throwable {
+        List<Map.Entry<Object, Object>> entries = new ArrayList<>(map.entrySet());
+        Object[] sanitized = sanitize(entries.stream().map(Map.Entry::getValue).toArray(), element, parallelThreshold, pool);
+        try {
+            for (int i = 0; i < sanitized.length; i++) {
+                entries.get(i).setValue(sanitized[i]);
+            }
+            return map;
+        } catch (UnsupportedOperationException e) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (int i = 0; i < sanitized.length; i++) {
+                copy.put(entries.get(i).getKey(), sanitized[i]);
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Sanitize the elements in place, null elements are kept
+     */
+    private static Object[] sanitize(Object[] values, SanitizerInvoker element, int parallelThreshold, ForkJoinPool pool) throws Throwable {
+        if (values.length < parallelThreshold) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    values[i] = element.invoke(values[i]);
+                }
+            }
+        } else {
+            int leafSize = Math.max(1, values.length / (pool.getParallelism() * 4));
+            pool.invoke(new SanitizeTask(IntStream.range(0, values.length).spliterator(), values, element, leafSize));
+        }
+        return values;
+    }
+
+    private static final class SanitizeTask extends RecursiveAction {
+        private final Spliterator.OfInt indices;
+        private final Object[] values;
+        private final SanitizerInvoker element;
+        private final int leafSize;
+
+        private SanitizeTask(Spliterator.OfInt indices, Object[] values, SanitizerInvoker element, int leafSize) {
+            this.indices = indices;
+            this.values = values;
+            this.element = element;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            Collection<SanitizeTask> forks = new ArrayList<>();
+            Spliterator.OfInt split;
+            while (indices.estimateSize() > leafSize && (split = indices.trySplit()) != null) {
+                SanitizeTask fork = new SanitizeTask(split, values, element, leafSize);
+                fork.fork();
+                forks.add(fork);
+            }
+            indices.forEachRemaining((int i) -> sanitize(i));
+            forks.forEach(SanitizeTask::join);
+        }
+
+        @SneakyThrows
+        private void sanitize(int i) {
+            if (values[i] != null) {
+                values[i] = element.invoke(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mclamee.tools.sanitizer;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Immutable sanitization plan of a method: the sanitized parameter indices and their resolved Sanitizers, stamped by
+ * the version of the cached Sanitizers it was resolved from
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+final class SanitizerPlan {
+    private final long version;
+    private final Step[] steps;
+    // any step is idempotent, the call opens a SanitizerScope
+    private final boolean idempotent;
+
+    /**
+     * Sanitization of one parameter
+     */
+    @Value
+    static class Step {
+        int index;
+        ResolvedSanitizer<Object> sanitizer;
+        // a single idempotent Sanitizer, not a chain
+        boolean idempotent;
+    }
+
+    long version() {
+        return version;
+    }
+
+    boolean isIdempotent() {
+        return idempotent;
+    }
+
+    int size() {
+        return steps.length;
+    }
+
+    Step step(int step) {
+        return steps[step];
+    }
+}
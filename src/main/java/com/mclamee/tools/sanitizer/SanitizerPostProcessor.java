@@ -1,28 +1,58 @@
 package com.mclamee.tools.sanitizer;
 
-import java.lang.reflect.Modifier;
-import java.util.Objects;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ReflectionUtils;
 
 /**
  * Post processor to look for Sanitizers in all Beans
+ * <p>
+ * The Sanitizers of a bean class are registered once, further beans of the same class, like prototypes, are skipped.
+ * The Sanitizers of other classes, like the ones loaded by plugins, may be registered and unregistered at runtime.
  */
 @Slf4j
 @Component
-public class SanitizerPostProcessor implements BeanPostProcessor {
+public class SanitizerPostProcessor implements BeanPostProcessor, ApplicationListener<ContextRefreshedEvent> {
 
     @Autowired
     private SanitizerCache caches;
 
+    @Value("${sanitizer.scan.skip-packages:java.,javax.,jdk.,sun.,com.sun.,org.springframework.,org.aspectj.}")
+    private String[] skipPackages;
+
+    private SanitizerScanner scanner;
+    private final Set<Class<?>> registeredClasses = ConcurrentHashMap.newKeySet();
+    private final LongAdder scanNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        scanner = new SanitizerScanner(SanitizerRegistries.load(getClass().getClassLoader()), skipPackages);
+    }
+
     /**
      * Before init
      *
@@ -47,68 +77,155 @@ public class SanitizerPostProcessor implements BeanPostProcessor {
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
         Class<?> targetClass = AopUtils.getTargetClass(bean);
-        ReflectionUtils.doWithMethods(targetClass, method -> {
-            Sanitizer annotation = AnnotationUtils.getAnnotation(method, Sanitizer.class);
-            if (annotation != null) {
-                if (!Modifier.isStatic(method.getModifiers())) {
-                    throw new IllegalArgumentException("Sanitizer method must be static: " + method);
-                }
-                int len = method.getParameterTypes().length;
-                if (len <= 0) {
-                    throw new IllegalArgumentException("Sanitizer method must accept one parameter but no parameter " +
-                        "found: " + method);
-                }
-                if (len > 1) {
-                    throw new IllegalArgumentException("Sanitizer method can only accept one parameter but " + len +
-                        " parameters found: " + method);
-                }
-                String paraType = method.getGenericParameterTypes()[0].getTypeName();
-                String returnType = method.getGenericReturnType().getTypeName();
-                if (!Objects.equals(paraType, returnType)) {
-                    throw new IllegalArgumentException("Sanitizer method must return the same type as the parameter:" +
-                        " " + method);
-                }
-
-                String className = targetClass.getName();
-                String methodName = method.getName();
-                String sanitizerName = annotation.name();
-                // default using method name
-                boolean noNameSpecified = false;
-                if (StringUtils.isEmpty(sanitizerName)) {
-                    noNameSpecified = true;
-                    sanitizerName = methodName;
-                }
-
-                SanitizerCache.SanitizerCacheKey refKey = SanitizerCache.SanitizerCacheKey.builder()
-                    .sanitizerName(sanitizerName)
-                    .genericTypeName(paraType)
-                    .className(className)
-                    .methodName(methodName)
-                    .build();
-
-                log.info("Caching.. refKey = " + refKey);
-                if (caches.exists(refKey)) {
-                    throw new IllegalArgumentException("Duplicated Sanitizer by Key: [" + refKey + "], please specify a name for it.");
-                } else {
-                    method.setAccessible(true); // make it public
-                    caches.put(refKey, method);
-                }
-
-                SanitizerCache.SanitizerCacheKey defaultKey = SanitizerCache.SanitizerCacheKey.builder()
-                    .sanitizerName(SanitizerCache.DEFAULT_KEY)
-                    .genericTypeName(paraType)
-                    .className(className)
-                    .methodName(methodName)
-                    .build();
-
-                // override or use the first found as default
-                if (noNameSpecified && (!caches.exists(defaultKey) || annotation.setDefault())) {
-                    log.info("Caching.. defaultKey = " + defaultKey);
-                    method.setAccessible(true); // make it public
-                    caches.put(defaultKey, method);
-                }
-            }
-        });
+        if (!registeredClasses.add(targetClass)) {
+            return bean;
+        }
+        long start = System.nanoTime();
+        Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> definitions = new LinkedHashMap<>();
+        collect(targetClass, definitions, false);
+        definitions.forEach(caches::put);
+        scanNanos.add(System.nanoTime() - start);
         return bean;
     }
-}
\ No newline at end of file
+
+    /**
+     * Register the Sanitizers of a class at runtime, like the ones of a plugin, published at once. The Sanitizers of a
+     * class of the same name, like a reloaded plugin, are replaced: the ones it no longer declares are unregistered in
+     * the same change.
+     *
+     * @param targetClass the class declaring the Sanitizers
+     * @return the new version of the cached Sanitizers
+     * @throws IllegalArgumentException if the Sanitizers of the class are already registered
+     */
+    public long register(Class<?> targetClass) {
+        if (!registeredClasses.add(targetClass)) {
+            throw new IllegalArgumentException("The Sanitizers of " + targetClass.getName() + " are already registered");
+        }
+        try {
+            Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> definitions = new LinkedHashMap<>();
+            collect(targetClass, definitions, true);
+            List<Class<?>> reloaded = registeredClasses.stream()
+                .filter(c -> c != targetClass && c.getName().equals(targetClass.getName()))
+                .collect(Collectors.toList());
+            List<SanitizerCache.SanitizerCacheKey> refKeys = new ArrayList<>();
+            reloaded.forEach(c -> refKeys.addAll(keys(c)));
+            long version = caches.replace(refKeys, definitions);
+            registeredClasses.removeAll(reloaded);
+            return version;
+        } catch (RuntimeException e) {
+            registeredClasses.remove(targetClass);
+            throw e;
+        }
+    }
+
+    /**
+     * Unregister the Sanitizers of a class at runtime, at once
+     *
+     * @param targetClass the class declaring the Sanitizers
+     * @return the new version of the cached Sanitizers
+     * @throws IllegalArgumentException if the Sanitizers of the class are not registered
+     */
+    public long unregister(Class<?> targetClass) {
+        if (!registeredClasses.remove(targetClass)) {
+            throw new IllegalArgumentException("The Sanitizers of " + targetClass.getName() + " are not registered");
+        }
+        return caches.unregister(keys(targetClass));
+    }
+
+    private List<SanitizerCache.SanitizerCacheKey> keys(Class<?> targetClass) {
+        List<SanitizerCache.SanitizerCacheKey> refKeys = new ArrayList<>();
+        for (Class<?> type = targetClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : scanner.sanitizers(type)) {
+                SanitizerCache.SanitizerCacheKey refKey = key(targetClass, method, sanitizerName(method));
+                refKeys.add(refKey);
+                // the default key of the class, if any, can only be held by one of its Sanitizers
+                refKeys.add(key(targetClass, method, SanitizerCache.DEFAULT_KEY));
+            }
+        }
+        return refKeys;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        ScanStats stats = getScanStats();
+        log.info("Scanned " + stats.getBeanClasses() + " bean class(es) for Sanitizers in " +
+            TimeUnit.NANOSECONDS.toMillis(stats.getNanos()) + " ms: " + stats.getScanned() + " class(es) scanned, " +
+            stats.getIndexed() + " indexed, " + stats.getSkipped() + " skipped, " + stats.getSanitizers() +
+            " Sanitizer(s) found");
+    }
+
+    /**
+     * Startup statistics of the Sanitizer scan
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class ScanStats {
+        // distinct bean classes, with their super classes scanned
+        private final long beanClasses;
+        // classes whose methods were scanned by reflection
+        private final long scanned;
+        // classes looked up in the compile time index
+        private final long indexed;
+        // classes of the skipped packages
+        private final long skipped;
+        private final long sanitizers;
+        private final long nanos;
+    }
+
+    public ScanStats getScanStats() {
+        SanitizerScanner.Stats stats = scanner.stats();
+        return new ScanStats(registeredClasses.size(), stats.getScanned(), stats.getIndexed(), stats.getSkipped(),
+            stats.getSanitizers(), scanNanos.sum());
+    }
+
+    private void collect(Class<?> targetClass, Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> definitions,
+                         boolean replacing) {
+        // same order as ReflectionUtils.doWithMethods: the class first, then its super classes
+        for (Class<?> type = targetClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : scanner.sanitizers(type)) {
+                collect(targetClass, method, definitions, replacing);
+            }
+        }
+    }
+
+    private void collect(Class<?> targetClass, Method method, Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> definitions,
+                         boolean replacing) {
+        Sanitizer annotation = AnnotationUtils.getAnnotation(method, Sanitizer.class);
+        if (annotation != null) {
+            // default using method name
+            boolean noNameSpecified = StringUtils.isEmpty(annotation.name());
+            SanitizerCache.SanitizerCacheKey refKey = key(targetClass, method, sanitizerName(method));
+
+            log.info("Caching.. refKey = " + refKey);
+            if (definitions.containsKey(refKey) || !replacing && caches.exists(refKey)) {
+                throw new IllegalArgumentException("Duplicated Sanitizer by Key: [" + refKey + "], please specify a name for it.");
+            }
+            SanitizerDefinition definition = SanitizerDefinition.of(method);
+            definitions.put(refKey, definition);
+
+            SanitizerCache.SanitizerCacheKey defaultKey = key(targetClass, method, SanitizerCache.DEFAULT_KEY);
+
+            // override or use the first found as default
+            boolean defaultExists = definitions.containsKey(defaultKey) || !replacing && caches.exists(defaultKey);
+            if (noNameSpecified && (!defaultExists || annotation.setDefault())) {
+                log.info("Caching.. defaultKey = " + defaultKey);
+                definitions.put(defaultKey, definition);
+            }
+        }
+    }
+
+    private static String sanitizerName(Method method) {
+        String sanitizerName = AnnotationUtils.getAnnotation(method, Sanitizer.class).name();
+        return StringUtils.isEmpty(sanitizerName) ? method.getName() : sanitizerName;
+    }
+
+    private static SanitizerCache.SanitizerCacheKey key(Class<?> targetClass, Method method, String sanitizerName) {
+        return SanitizerCache.SanitizerCacheKey.builder()
+            .sanitizerName(sanitizerName)
+            .genericTypeName(method.getGenericParameterTypes()[0].getTypeName())
+            .className(targetClass.getName())
+            .methodName(method.getName())
+            .build();
+    }
+}
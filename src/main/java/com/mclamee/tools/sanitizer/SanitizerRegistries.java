@@ -0,0 +1,109 @@
+package com.mclamee.tools.sanitizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.SpringProperties;
+
+/**
+ * The {@link SanitizerRegistry}s generated at compile time, loaded from the {@link SanitizerRegistry#INDEX_LOCATION}s
+ * of a ClassLoader
+ * <p>
+ * Every class compiled by the processor is listed in the index, with an empty registry name if it declares no
+ * Sanitizers. The classes missing from it, like the ones of a compilation which did not run the processor, and the
+ * listed classes loaded from other outputs are left to the reflective scan. Set the {@link #IGNORE_INDEX_PROPERTY}
+ * to always scan.
+ */
+@Slf4j
+final class SanitizerRegistries {
+    static final String IGNORE_INDEX_PROPERTY = "sanitizer.index.ignore";
+    private static final Method[] NONE = new Method[0];
+
+    private final Set<String> roots;
+    private final Map<String, String> registries;
+
+    private SanitizerRegistries(Set<String> roots, Map<String, String> registries) {
+        this.roots = roots;
+        this.registries = registries;
+    }
+
+    static SanitizerRegistries load(ClassLoader classLoader) {
+        if (classLoader == null || SpringProperties.getFlag(IGNORE_INDEX_PROPERTY)) {
+            return new SanitizerRegistries(Collections.emptySet(), Collections.emptyMap());
+        }
+        Set<String> roots = new HashSet<>();
+        Map<String, String> registries = new HashMap<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(SanitizerRegistry.INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                Properties index = new Properties();
+                try (InputStream in = url.openStream()) {
+                    index.load(in);
+                }
+                String location = url.toString();
+                roots.add(location.substring(0, location.length() - SanitizerRegistry.INDEX_LOCATION.length()));
+                index.stringPropertyNames().forEach(name -> registries.put(name, index.getProperty(name)));
+            }
+        } catch (IOException e) {
+            log.warn("Cannot load the Sanitizer indexes, scanning all classes instead", e);
+            return new SanitizerRegistries(Collections.emptySet(), Collections.emptyMap());
+        }
+        log.info("Loaded " + registries.size() + " Sanitizer registries from " + roots.size() + " index(es)");
+        return new SanitizerRegistries(roots, registries);
+    }
+
+    /**
+     * The Sanitizer methods declared by the class
+     *
+     * @param type the class
+     * @return the methods from the index, empty if the class is listed without Sanitizers, null if the class must be
+     * scanned
+     */
+    Method[] sanitizers(Class<?> type) {
+        // only the listed classes are located, most classes of an unindexed output are not
+        String registryName = registries.get(type.getName());
+        if (registryName == null || !isIndexed(type)) {
+            return null;
+        }
+        if (registryName.isEmpty()) {
+            return NONE;
+        }
+        try {
+            Class<?> registryClass = Class.forName(registryName, true, type.getClassLoader());
+            SanitizerRegistry registry = (SanitizerRegistry) registryClass.newInstance();
+            if (registry.declaringClass() != type) {
+                throw new IllegalStateException("Registry of " + registry.declaringClass() + " indexed for " + type);
+            }
+            return registry.sanitizers();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            log.warn("Cannot load the Sanitizer registry " + registryName + ", scanning " + type + " instead", e);
+            return null;
+        }
+    }
+
+    private boolean isIndexed(Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        if (roots.isEmpty() || classLoader == null) {
+            return false;
+        }
+        String resource = type.getName().replace('.', '/') + ".class";
+        URL url = classLoader.getResource(resource);
+        if (url == null) {
+            // generated at runtime, like proxies
+            return false;
+        }
+        String location = url.toString();
+        return location.endsWith(resource) && roots.contains(location.substring(0, location.length() - resource.length()));
+    }
+}
@@ -0,0 +1,34 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.reflect.Method;
+
+/**
+ * Sanitizers declared by a class, generated at compile time by the
+ * {@link com.mclamee.tools.sanitizer.processor.SanitizerProcessor}
+ * <p>
+ * The generated registries of a class output are listed in its {@link #INDEX_LOCATION}, the classes of an indexed
+ * output are not scanned for Sanitizers at runtime.
+ */
+public interface SanitizerRegistry {
+    /**
+     * Index of the generated registries, as properties of the declaring class name to the registry class name, empty
+     * for a compiled class without Sanitizers
+     */
+    String INDEX_LOCATION = "META-INF/sanitizers.index";
+
+    /**
+     * Suffix of the generated registry class names
+     */
+    String SUFFIX = "_SanitizerRegistry";
+
+    /**
+     * @return the class declaring the Sanitizers
+     */
+    Class<?> declaringClass();
+
+    /**
+     * @return the Sanitizer methods, in declaration order
+     * @throws ReflectiveOperationException if the declaring class changed since the registry was generated
+     */
+    Method[] sanitizers() throws ReflectiveOperationException;
+}
@@ -0,0 +1,71 @@
+package com.mclamee.tools.sanitizer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Value;
+
+/**
+ * Bounded cache of the results of a pure Sanitizer, so that a hit skips the invocation
+ * <p>
+ * The results are evicted by frequency and recency (W-TinyLFU), bounded by count or by the length of the parameters.
+ * Null parameters and null results are never cached.
+ */
+public final class SanitizerResultCache implements SanitizerInvoker {
+    private final SanitizerInvoker invoker;
+    private final Cache<Object, Object> results;
+
+    SanitizerResultCache(SanitizerInvoker invoker, long cacheSize, boolean weighByLength) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Sanitizer cache size must be positive but " + cacheSize + " found");
+        }
+        // maintain on the calling thread rather than the common pool
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().executor(Runnable::run).recordStats();
+        if (weighByLength) {
+            builder.maximumWeight(cacheSize)
+                .weigher((value, sanitized) -> value instanceof CharSequence ? Math.max(1, ((CharSequence) value).length()) : 1);
+        } else {
+            builder.maximumSize(cacheSize);
+        }
+        this.invoker = invoker;
+        this.results = builder.build();
+    }
+
+    @Override
+    public Object invoke(Object value) throws Throwable {
+        if (value == null) {
+            return invoker.invoke(null);
+        }
+        Object sanitized = results.getIfPresent(value);
+        if (sanitized == null) {
+            sanitized = invoker.invoke(value);
+            if (sanitized != null) {
+                results.put(value, sanitized);
+            }
+        }
+        return sanitized;
+    }
+
+    /**
+     * Hit and miss statistics of the cache
+     */
+    @Value
+    public static class Stats {
+        long hitCount;
+        long missCount;
+        long evictionCount;
+        long size;
+    }
+
+    public Stats stats() {
+        CacheStats stats = results.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), results.estimatedSize());
+    }
+
+    /**
+     * Discard all the cached results
+     */
+    public void clear() {
+        results.invalidateAll();
+    }
+}
@@ -0,0 +1,135 @@
+package com.mclamee.tools.sanitizer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
+
+import lombok.Value;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Find and validate the Sanitizer methods declared by a class, each class is scanned once
+ * <p>
+ * The Sanitizers are loaded from the compile time {@link SanitizerRegistries} when the class is indexed, otherwise
+ * the declared methods are scanned. Classes of the skipped packages, like the JDK and frameworks, are never scanned.
+ */
+final class SanitizerScanner {
+    private static final Method[] NONE = new Method[0];
+
+    private final SanitizerRegistries registries;
+    private final String[] skipPackages;
+
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder sanitizers = new LongAdder();
+
+    private final ClassValue<Method[]> cache = new ClassValue<Method[]>() {
+        @Override
+        protected Method[] computeValue(Class<?> type) {
+            return scan(type);
+        }
+    };
+
+    SanitizerScanner(SanitizerRegistries registries, String[] skipPackages) {
+        this.registries = registries;
+        this.skipPackages = skipPackages.clone();
+    }
+
+    /**
+     * The validated Sanitizer methods declared by the class, not by its super classes
+     *
+     * @param type the class
+     * @return the Sanitizer methods, empty if none
+     */
+    Method[] sanitizers(Class<?> type) {
+        return cache.get(type);
+    }
+
+    /**
+     * Statistics of the classes scanned so far
+     */
+    @Value
+    static class Stats {
+        long scanned;
+        long indexed;
+        long skipped;
+        long sanitizers;
+    }
+
+    Stats stats() {
+        return new Stats(scanned.sum(), indexed.sum(), skipped.sum(), sanitizers.sum());
+    }
+
+    private Method[] scan(Class<?> type) {
+        String className = type.getName();
+        for (String skipPackage : skipPackages) {
+            if (className.startsWith(skipPackage)) {
+                skipped.increment();
+                return NONE;
+            }
+        }
+
+        Method[] methods = registries.sanitizers(type);
+        if (methods != null) {
+            indexed.increment();
+        } else {
+            scanned.increment();
+            List<Method> found = new ArrayList<>();
+            ReflectionUtils.doWithLocalMethods(type, method -> {
+                if (AnnotationUtils.getAnnotation(method, Sanitizer.class) != null) {
+                    found.add(method);
+                }
+            });
+            methods = found.toArray(NONE);
+        }
+
+        for (Method method : methods) {
+            validate(method);
+        }
+        sanitizers.add(methods.length);
+        return methods.length == 0 ? NONE : methods;
+    }
+
+    private static void validate(Method method) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("Sanitizer method must be static: " + method);
+        }
+        int len = method.getParameterTypes().length;
+        if (len <= 0) {
+            throw new IllegalArgumentException("Sanitizer method must accept one parameter but no parameter " +
+                "found: " + method);
+        }
+        if (len > 1) {
+            throw new IllegalArgumentException("Sanitizer method can only accept one parameter but " + len +
+                " parameters found: " + method);
+        }
+        String paraType = method.getGenericParameterTypes()[0].getTypeName();
+        String returnType = method.getGenericReturnType().getTypeName();
+        if (!Objects.equals(paraType, returnType)) {
+            throw new IllegalArgumentException("Sanitizer method must return the same type as the parameter:" +
+                " " + method);
+        }
+        Sanitizer annotation = AnnotationUtils.getAnnotation(method, Sanitizer.class);
+        Class<?> paraClass = method.getParameterTypes()[0];
+        // the cached results are shared by all the callers, a mutable value would be aliased
+        if (annotation != null && annotation.pure() && paraClass != String.class && !paraClass.isPrimitive() &&
+            !ClassUtils.isPrimitiveWrapper(paraClass) && !paraClass.isEnum()) {
+            throw new IllegalArgumentException("Pure Sanitizer method must accept a String, a primitive, a wrapper or" +
+                " an enum: " + method);
+        }
+        if (annotation != null && annotation.dedup() && paraClass != String.class) {
+            throw new IllegalArgumentException("Dedup Sanitizer method must accept a String: " + method);
+        }
+        if (annotation != null && annotation.fused() != CharSanitizer.class && paraClass != String.class) {
+            throw new IllegalArgumentException("Fused Sanitizer method must accept a String: " + method);
+        }
+    }
+}
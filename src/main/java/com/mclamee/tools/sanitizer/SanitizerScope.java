@@ -0,0 +1,72 @@
+package com.mclamee.tools.sanitizer;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The values already returned by the idempotent Sanitizers within the outermost {@code @Sanitized} call of a thread
+ * <p>
+ * Values are tracked by identity, an equal value of another instance is sanitized again. The scope holds the values
+ * until the outermost call returns.
+ */
+final class SanitizerScope {
+    private static final ThreadLocal<SanitizerScope> CURRENT = new ThreadLocal<>();
+
+    // the Sanitizer of a value, or an array of them when sanitized by several
+    private final Map<Object, Object> done = new IdentityHashMap<>();
+
+    private SanitizerScope() {
+    }
+
+    /**
+     * The scope of the current thread
+     *
+     * @return the scope, null if no outermost call is in progress
+     */
+    static SanitizerScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Open the scope of an outermost call on the current thread, to be closed when it returns
+     *
+     * @return the new scope
+     */
+    static SanitizerScope open() {
+        SanitizerScope scope = new SanitizerScope();
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    boolean isDone(Object value, SanitizerDefinition sanitizer) {
+        Object sanitizers = done.get(value);
+        if (sanitizers == sanitizer) {
+            return true;
+        }
+        if (sanitizers instanceof SanitizerDefinition[]) {
+            for (SanitizerDefinition each : (SanitizerDefinition[]) sanitizers) {
+                if (each == sanitizer) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void done(Object value, SanitizerDefinition sanitizer) {
+        Object sanitizers = done.putIfAbsent(value, sanitizer);
+        if (sanitizers == null || isDone(value, sanitizer)) {
+            return;
+        }
+        SanitizerDefinition[] previous = sanitizers instanceof SanitizerDefinition[] ?
+            (SanitizerDefinition[]) sanitizers : new SanitizerDefinition[]{(SanitizerDefinition) sanitizers};
+        SanitizerDefinition[] all = new SanitizerDefinition[previous.length + 1];
+        System.arraycopy(previous, 0, all, 0, previous.length);
+        all[previous.length] = sanitizer;
+        done.put(value, all);
+    }
+}
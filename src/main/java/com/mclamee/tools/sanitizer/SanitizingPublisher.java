@@ -0,0 +1,87 @@
+package com.mclamee.tools.sanitizer;
+
+import lombok.AllArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publisher of the sanitized elements of another one, each element is sanitized as it is emitted
+ * <p>
+ * The demand and the cancellation are passed upstream as is, nothing is buffered. An exception of the Sanitizer, or a
+ * null element it returns which cannot be emitted, cancels the upstream and is signalled by {@code onError}.
+ */
+@AllArgsConstructor
+final class SanitizingPublisher implements Publisher<Object> {
+    private final Publisher<?> source;
+    private final ResolvedSanitizer<Object> sanitizer;
+
+    static Publisher<Object> of(Object source, ResolvedSanitizer<Object> sanitizer) {
+        return new SanitizingPublisher((Publisher<?>) source, sanitizer);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Object> subscriber) {
+        source.subscribe(new SanitizingSubscriber(subscriber, sanitizer));
+    }
+
+    private static final class SanitizingSubscriber implements Subscriber<Object> {
+        private final Subscriber<? super Object> downstream;
+        private final ResolvedSanitizer<Object> sanitizer;
+        private Subscription upstream;
+        private boolean done;
+
+        SanitizingSubscriber(Subscriber<? super Object> downstream, ResolvedSanitizer<Object> sanitizer) {
+            this.downstream = downstream;
+            this.sanitizer = sanitizer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.upstream = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(Object element) {
+            if (done) {
+                return;
+            }
+            Object sanitized;
+            try {
+                sanitized = sanitizer.sanitize(element);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+            if (sanitized == null) {
+                // null elements are not allowed by the Reactive Streams rule 2.13
+                fail(new NullPointerException("Sanitizer [" + sanitizer.getKey() + "] returned a null element"));
+                return;
+            }
+            downstream.onNext(sanitized);
+        }
+
+        private void fail(Throwable error) {
+            done = true;
+            upstream.cancel();
+            downstream.onError(error);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            if (!done) {
+                done = true;
+                downstream.onError(error);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.mclamee.tools.sanitizer.config;
+
+import com.mclamee.tools.sanitizer.SanitizerAspect;
+import com.mclamee.tools.sanitizer.SanitizerCache;
+import org.aspectj.lang.Aspects;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * Configure the {@link SanitizerAspect} woven by AspectJ instead of creating proxies
+ */
+@Configuration
+@ComponentScan(basePackages = {SanitizerCache.BASE_PACKAGE}, excludeFilters = @ComponentScan.Filter(
+    type = FilterType.ASSIGNABLE_TYPE, classes = {SanitizerAspect.class, SanitizerConfiguration.class}))
+public class AspectJSanitizerConfiguration {
+
+    /**
+     * The aspect instance is created by AspectJ, only its dependencies are injected
+     *
+     * @return the woven aspect
+     */
+    @Bean
+    public SanitizerAspect sanitizerAspect() {
+        return Aspects.aspectOf(SanitizerAspect.class);
+    }
+}
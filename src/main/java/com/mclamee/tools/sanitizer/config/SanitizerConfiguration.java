@@ -4,10 +4,12 @@ import com.mclamee.tools.sanitizer.SanitizerCache;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.FilterType;
 
 @Configuration
 @EnableAspectJAutoProxy
-@ComponentScan(basePackages = {SanitizerCache.BASE_PACKAGE})
+@ComponentScan(basePackages = {SanitizerCache.BASE_PACKAGE}, excludeFilters = @ComponentScan.Filter(
+    type = FilterType.ASSIGNABLE_TYPE, classes = AspectJSanitizerConfiguration.class))
 public class SanitizerConfiguration {
 
 }
@@ -0,0 +1,23 @@
+package com.mclamee.tools.sanitizer.config;
+
+import com.mclamee.tools.EnableSanitizerModule;
+import org.springframework.context.annotation.AdviceMode;
+import org.springframework.context.annotation.AdviceModeImportSelector;
+
+/**
+ * Select the Sanitizer configuration of the {@link EnableSanitizerModule#mode()}
+ */
+public class SanitizerConfigurationSelector extends AdviceModeImportSelector<EnableSanitizerModule> {
+
+    @Override
+    protected String[] selectImports(AdviceMode adviceMode) {
+        switch (adviceMode) {
+            case PROXY:
+                return new String[] {SanitizerConfiguration.class.getName()};
+            case ASPECTJ:
+                return new String[] {AspectJSanitizerConfiguration.class.getName()};
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mclamee.tools.sanitizer.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer binding of the {@link SanitizerMetrics}, micrometer-core is an optional dependency:
+ * <pre>
+ * &#64;Bean
+ * public SanitizerMetrics sanitizerMetrics(MeterRegistry registry) {
+ *     return new MicrometerSanitizerMetrics(registry);
+ * }
+ * </pre>
+ * Records the {@value #RESOLUTIONS} counter and the {@value #INVOCATIONS} timer with a latency histogram, tagged by
+ * sanitizer, name, fallback, lifted, outcome (changed, unchanged or error) and exception.
+ */
+public class MicrometerSanitizerMetrics implements SanitizerMetrics {
+    public static final String RESOLUTIONS = "sanitizer.resolutions";
+    public static final String INVOCATIONS = "sanitizer.invocations";
+
+    private final MeterRegistry registry;
+
+    public MicrometerSanitizerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Recorder resolved(SanitizerMetricKey key) {
+        Tags tags = Tags.of(
+            "sanitizer", key.getSanitizer(),
+            "name", key.getName(),
+            "fallback", String.valueOf(key.isFallback()),
+            "lifted", String.valueOf(key.isLifted()));
+        registry.counter(RESOLUTIONS, tags).increment();
+
+        Timer changed = timer(tags, "changed", "none");
+        Timer unchanged = timer(tags, "unchanged", "none");
+        return (nanos, isChanged, error) -> {
+            if (error != null) {
+                timer(tags, "error", error.getClass().getSimpleName()).record(nanos, TimeUnit.NANOSECONDS);
+            } else {
+                (isChanged ? changed : unchanged).record(nanos, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private Timer timer(Tags tags, String outcome, String exception) {
+        return Timer.builder(INVOCATIONS)
+            .description("Sanitizer invocations")
+            .tags(tags)
+            .tag("outcome", outcome)
+            .tag("exception", exception)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
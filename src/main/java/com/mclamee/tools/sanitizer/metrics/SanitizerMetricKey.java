@@ -0,0 +1,18 @@
+package com.mclamee.tools.sanitizer.metrics;
+
+import lombok.Value;
+
+/**
+ * Identify a resolved Sanitizer in the metrics
+ */
+@Value
+public class SanitizerMetricKey {
+    // the Sanitizer method, as declaring class name and method name, the methods joined by commas for a fused chain
+    String sanitizer;
+    // the requested Sanitizer name
+    String name;
+    // resolved by the default rules
+    boolean fallback;
+    // lifted over a container
+    boolean lifted;
+}
@@ -0,0 +1,35 @@
+package com.mclamee.tools.sanitizer.metrics;
+
+/**
+ * SPI to record the Sanitizer resolutions and invocations, declare a bean of it to enable the metrics
+ * <p>
+ * The recorder of a Sanitizer is obtained once when it is resolved, the invocations are not instrumented at all with
+ * the {@link #NOOP} metrics.
+ */
+public interface SanitizerMetrics {
+    SanitizerMetrics NOOP = key -> Recorder.NOOP;
+
+    /**
+     * A Sanitizer is resolved for a parameter or a {@code SanitizerEngine} resolver
+     *
+     * @param key the resolved Sanitizer
+     * @return the recorder of its invocations
+     */
+    Recorder resolved(SanitizerMetricKey key);
+
+    /**
+     * Record the invocations of a resolved Sanitizer
+     */
+    @FunctionalInterface
+    interface Recorder {
+        Recorder NOOP = (nanos, changed, error) -> {
+        };
+
+        /**
+         * @param nanos   the latency of the invocation
+         * @param changed whether the sanitized value is not equal to the input, changes in place are not seen
+         * @param error   the exception thrown by the Sanitizer, null if none
+         */
+        void record(long nanos, boolean changed, Throwable error);
+    }
+}
@@ -0,0 +1,344 @@
+package com.mclamee.tools.sanitizer.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerRegistry;
+
+/**
+ * Annotation processor validating the Sanitizer methods at compile time and generating a {@link SanitizerRegistry}
+ * for each class declaring them, listed in the {@link SanitizerRegistry#INDEX_LOCATION} of the class output
+ * <p>
+ * Every compiled class is listed, the ones without Sanitizers with an empty registry name, so that none of them is
+ * scanned at runtime. The entries of the classes which no longer exist are dropped.
+ */
+@SupportedAnnotationTypes("*")
+public class SanitizerProcessor extends AbstractProcessor {
+    static final String SANITIZER_ANNOTATION = "com.mclamee.tools.sanitizer.Sanitizer";
+    private static final String CHAR_SANITIZER = "com.mclamee.tools.sanitizer.util.CharSanitizer";
+
+    private final Map<String, String> index = new LinkedHashMap<>();
+    private final Set<String> generated = new HashSet<>();
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        // group the valid Sanitizers by declaring class, in declaration order
+        Map<TypeElement, List<ExecutableElement>> sanitizers = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Sanitizer.class)) {
+            ExecutableElement method = (ExecutableElement) element;
+            if (validate(method)) {
+                TypeElement type = (TypeElement) method.getEnclosingElement();
+                sanitizers.computeIfAbsent(type, k -> new ArrayList<>()).add(method);
+            }
+        }
+        sanitizers.forEach(this::writeRegistry);
+        for (Element element : roundEnv.getRootElements()) {
+            if (element instanceof TypeElement) {
+                listTypes((TypeElement) element);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * List the type and its nested types, the ones without Sanitizers by an empty registry name
+     */
+    private void listTypes(TypeElement type) {
+        String binaryName = elements.getBinaryName(type).toString();
+        if (generated.contains(binaryName)) {
+            return;
+        }
+        index.putIfAbsent(binaryName, "");
+        for (Element element : type.getEnclosedElements()) {
+            if (element instanceof TypeElement) {
+                listTypes((TypeElement) element);
+            }
+        }
+    }
+
+    private boolean validate(ExecutableElement method) {
+        if (!method.getModifiers().contains(Modifier.STATIC)) {
+            return error(method, "Sanitizer method must be static: " + method);
+        }
+        int len = method.getParameters().size();
+        if (len <= 0) {
+            return error(method, "Sanitizer method must accept one parameter but no parameter found: " + method);
+        }
+        if (len > 1) {
+            return error(method, "Sanitizer method can only accept one parameter but " + len + " parameters found: " + method);
+        }
+        if (!types.isSameType(method.getParameters().get(0).asType(), method.getReturnType())) {
+            return error(method, "Sanitizer method must return the same type as the parameter: " + method);
+        }
+        Sanitizer annotation = method.getAnnotation(Sanitizer.class);
+        if (annotation != null && annotation.pure() && !isImmutable(method.getParameters().get(0).asType())) {
+            return error(method, "Pure Sanitizer method must accept a String, a primitive, a wrapper or an enum: " + method);
+        }
+        if (annotation != null && annotation.dedup() && !types.isSameType(method.getParameters().get(0).asType(),
+            elements.getTypeElement("java.lang.String").asType())) {
+            return error(method, "Dedup Sanitizer method must accept a String: " + method);
+        }
+        if (annotation != null && isFused(method) && !types.isSameType(method.getParameters().get(0).asType(),
+            elements.getTypeElement("java.lang.String").asType())) {
+            return error(method, "Fused Sanitizer method must accept a String: " + method);
+        }
+        return true;
+    }
+
+    /**
+     * Whether the Sanitizer declares a char level equivalent, the Class attribute is read as a mirror
+     */
+    private boolean isFused(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(SANITIZER_ANNOTATION)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("fused")) {
+                        TypeMirror fused = (TypeMirror) entry.getValue().getValue();
+                        return !types.isSameType(fused, elements.getTypeElement(CHAR_SANITIZER).asType());
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the results of a pure Sanitizer of the type can be shared by all the callers
+     */
+    private boolean isImmutable(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element element = types.asElement(type);
+        if (element.getKind() == ElementKind.ENUM) {
+            return true;
+        }
+        if (types.isSameType(type, elements.getTypeElement("java.lang.String").asType())) {
+            return true;
+        }
+        try {
+            types.unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // not a wrapper
+            return false;
+        }
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+
+    private void writeRegistry(TypeElement type, List<ExecutableElement> methods) {
+        PackageElement pkg = elements.getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = binaryName.substring(pkg.isUnnamed() ? 0 : packageName.length() + 1).replace('$', '_') +
+            SanitizerRegistry.SUFFIX;
+        String registryName = pkg.isUnnamed() ? simpleName : packageName + "." + simpleName;
+
+        generated.add(registryName);
+        try (Writer writer = processingEnv.getFiler().createSourceFile(registryName, type).openWriter();
+             PrintWriter out = new PrintWriter(writer)) {
+            if (!pkg.isUnnamed()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Sanitizers of {@code " + binaryName + "}, generated by " + getClass().getName());
+            out.println(" */");
+            out.println("public final class " + simpleName + " implements " + SanitizerRegistry.class.getName() + " {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> declaringClass() {");
+            if (isAccessible(type.asType(), pkg)) {
+                out.println("        return " + classLiteral(type.asType()) + ";");
+            } else {
+                out.println("        try {");
+                out.println("            return " + forName(type.asType()) + ";");
+                out.println("        } catch (ClassNotFoundException e) {");
+                out.println("            throw new IllegalStateException(e);");
+                out.println("        }");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public java.lang.reflect.Method[] sanitizers() throws ReflectiveOperationException {");
+            out.println("        Class<?> type = declaringClass();");
+            out.println("        return new java.lang.reflect.Method[] {");
+            for (ExecutableElement method : methods) {
+                VariableElement parameter = method.getParameters().get(0);
+                TypeMirror parameterType = types.erasure(parameter.asType());
+                String parameterClass = isAccessible(parameterType, pkg) ? classLiteral(parameterType) : forName(parameterType);
+                out.println("            type.getDeclaredMethod(\"" + method.getSimpleName() + "\", " + parameterClass + "),");
+            }
+            out.println("        };");
+            out.println("    }");
+            out.println("}");
+        } catch (IOException e) {
+            error(type, "Cannot generate the Sanitizer registry " + registryName + ": " + e);
+            return;
+        }
+        index.put(binaryName, registryName);
+    }
+
+    private void writeIndex() {
+        if (index.isEmpty()) {
+            return;
+        }
+        // an incremental compilation processes some classes only, keep the entries of the other ones which still exist
+        Map<String, String> entries = new TreeMap<>();
+        readIndex().forEach((declaringClass, registry) -> {
+            if (!index.containsKey(declaringClass) && elements.getTypeElement(declaringClass.replace('$', '.')) != null) {
+                entries.put(declaringClass, registry);
+            }
+        });
+        entries.putAll(index);
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                SanitizerRegistry.INDEX_LOCATION);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                entries.forEach((declaringClass, registry) -> out.println(declaringClass + "=" + registry));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Cannot write the Sanitizer index " + SanitizerRegistry.INDEX_LOCATION + ": " + e);
+        }
+    }
+
+    private Map<String, String> readIndex() {
+        Properties existing = new Properties();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                SanitizerRegistry.INDEX_LOCATION);
+            try (Reader in = file.openReader(true)) {
+                existing.load(in);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no index written by a previous compilation
+        }
+        Map<String, String> entries = new HashMap<>();
+        existing.stringPropertyNames().forEach(name -> entries.put(name, existing.getProperty(name)));
+        return entries;
+    }
+
+    /**
+     * Whether the generated registry in the package can refer to the type by a class literal
+     */
+    private boolean isAccessible(TypeMirror type, PackageElement pkg) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return isAccessible(((ArrayType) type).getComponentType(), pkg);
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return true;
+        }
+        for (Element e = ((DeclaredType) type).asElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            Set<Modifier> modifiers = e.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(e).equals(pkg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String classLiteral(TypeMirror type) {
+        return types.erasure(type).toString() + ".class";
+    }
+
+    private String forName(TypeMirror type) {
+        return "Class.forName(\"" + binaryName(type, false) + "\", false, getClass().getClassLoader())";
+    }
+
+    /**
+     * The name of the type for {@link Class#forName(String)}, arrays are named by their descriptor
+     */
+    private String binaryName(TypeMirror type, boolean component) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return "[" + binaryName(((ArrayType) type).getComponentType(), true);
+            case DECLARED:
+                String name = elements.getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+                return component ? "L" + name + ";" : name;
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case CHAR:
+                return "C";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            default:
+                throw new IllegalArgumentException("Unsupported Sanitizer parameter type: " + type);
+        }
+    }
+}
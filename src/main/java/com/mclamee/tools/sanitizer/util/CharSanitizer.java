@@ -0,0 +1,32 @@
+package com.mclamee.tools.sanitizer.util;
+
+/**
+ * A Sanitizer of the chars of a String, which can be fused with others into a single pass
+ * <p>
+ * A {@code @Sanitizer} of Strings declares its char level equivalent by
+ * {@link com.mclamee.tools.sanitizer.Sanitizer#fused()}: a chain of such Sanitizers pushes the chars of the input
+ * through the stages opened for each call into one output buffer, without any intermediate String. Implementations
+ * must be stateless with a public no-arg constructor, the state of a call lives in its {@link Sink}.
+ */
+public interface CharSanitizer {
+
+    /**
+     * Receiver of the chars of one call
+     */
+    interface Sink {
+        void append(char c);
+
+        /**
+         * The input ends, flush or drop the chars held back
+         */
+        void end();
+    }
+
+    /**
+     * Open the stage of one call
+     *
+     * @param downstream the receiver of the sanitized chars
+     * @return the receiver of the input chars
+     */
+    Sink open(Sink downstream);
+}
@@ -0,0 +1,65 @@
+package com.mclamee.tools.sanitizer.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.core.SpringProperties;
+
+/**
+ * Canonicalize the equal short Strings into one instance, to cut the heap of repeated sanitized values
+ * <p>
+ * The table is direct-mapped by hash, bounded and lossy: a String replaces the one of its slot on a miss, and the
+ * canonical instances are weakly referenced, so the table never retains them. It is lock free and can be shared by
+ * all threads. The {@link #DEFAULT} table is sized by the {@link #SIZE_PROPERTY} and {@link #MAX_LENGTH_PROPERTY}.
+ */
+public final class StringDeduplicator {
+    public static final String SIZE_PROPERTY = "sanitizer.dedup.size";
+    public static final String MAX_LENGTH_PROPERTY = "sanitizer.dedup.max-length";
+
+    public static final StringDeduplicator DEFAULT = new StringDeduplicator(
+        intProperty(SIZE_PROPERTY, 1 << 14), intProperty(MAX_LENGTH_PROPERTY, 64));
+
+    private final AtomicReferenceArray<WeakReference<String>> table;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * @param size      the number of slots, rounded up to a power of two
+     * @param maxLength the longest String deduplicated, the longer ones are returned as is
+     */
+    public StringDeduplicator(int size, int maxLength) {
+        if (size <= 0 || size > 1 << 30) {
+            throw new IllegalArgumentException("Dedup table size must be between 1 and 2^30 but " + size + " found");
+        }
+        int slots = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        this.table = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * The canonical instance equal to the string
+     *
+     * @param str the string
+     * @return an equal String seen before, or the string itself
+     */
+    public String dedup(String str) {
+        if (str == null || str.length() > maxLength) {
+            return str;
+        }
+        int h = str.hashCode();
+        int index = (h ^ (h >>> 16)) & mask;
+        WeakReference<String> ref = table.get(index);
+        String canonical = ref == null ? null : ref.get();
+        if (str.equals(canonical)) {
+            return canonical;
+        }
+        table.lazySet(index, new WeakReference<>(str));
+        return str;
+    }
+
+    private static int intProperty(String key, int defaultValue) {
+        String value = SpringProperties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,400 @@
+package com.mclamee.tools.sanitizer.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Single pass engine behind {@link WhiteSpaceUtil}
+ * <p>
+ * The {@link WhiteSpaceUtil.SpecHtmlCharacterEnum} characters are compiled into a two-level lookup table of char
+ * classes: line break, space, empty or keep. Splitting lines, collapsing spaces, deleting empty chars and trimming are
+ * all done in one forward pass appending to a single buffer, with the same result as splitting by
+ * {@code [\n\r\v]+}, replacing {@code [\f\t<spaces>]+} by one space, deleting {@code [<empties>]+} and trimming each
+ * line.
+ * <p>
+ * With the entities decoded, the named and decimal entities of the {@link WhiteSpaceUtil.SpecHtmlCharacterEnum}, like
+ * {@code &nbsp;} or {@code &#8203;}, are matched by a trie within the same pass and classified as the char they stand
+ * for. Other entities are kept as is.
+ * <p>
+ * The pass can be resumed over consecutive chunks of the input: {@link #start(StringBuilder)} creates the state,
+ * {@link #append} consumes a chunk and returns the new state, {@link #finish(StringBuilder, long)} trims the last line.
+ */
+final class WhiteSpaceEngine {
+    static final int KEEP = 0;
+    static final int SPACE = 1;
+    static final int EMPTY = 2;
+    static final int LINE_BREAK = 3;
+
+    // the class of a char when sanitizing a single line is stored in the bits 0-1, when splitting lines in the bits 2-3
+    private static final int LINE_SHIFT = 0;
+    private static final int TEXT_SHIFT = 2;
+    private static final byte[][] PAGES = new byte[256][];
+
+    // trie of the entities after the &, over ASCII: the next node by char, 0 if none, and the decoded char + 1
+    private static final short[][] ENTITY_NEXT;
+    private static final char[] ENTITY_VALUE;
+
+    // state: the start of the current line in the output buffer, shifted by 2, and the flags below
+    private static final long PREVIOUS_SPACE = 1;
+    private static final long IN_LINE_BREAK = 2;
+
+    // SWAR constants of four 16-bit lanes
+    private static final long LANES = 0x0001_0001_0001_0001L;
+    private static final long HIGH_BITS = 0x8000_8000_8000_8000L;
+
+    static {
+        for (WhiteSpaceUtil.SpecHtmlCharacterEnum i : WhiteSpaceUtil.SpecHtmlCharacterEnum.values()) {
+            char c = (char) Integer.parseInt(i.getUnicodeRegex().substring(2), 16);
+            if ("space".equals(i.getAppearance())) {
+                define(c, SPACE);
+            } else if ("empty".equals(i.getAppearance()) && classOf(c, false) == KEEP) {
+                define(c, EMPTY);
+            }
+        }
+        // \f and \t are replaced as spaces before the empty chars are deleted
+        define('\f', SPACE);
+        define('\t', SPACE);
+
+        // line breaks of the regex [\n\r\v], where \v is [\n\x0B\f\r\x85\x{2028}\x{2029}]
+        for (char c : new char[] {'\n', '\u000B', '\f', '\r', '\u0085', '\u2028', '\u2029'}) {
+            byte[] page = page(c);
+            page[c & 0xFF] = (byte) ((page[c & 0xFF] & 3) | LINE_BREAK << TEXT_SHIFT);
+        }
+
+        // at most one node per char of the entities
+        int capacity = 1;
+        for (WhiteSpaceUtil.SpecHtmlCharacterEnum i : WhiteSpaceUtil.SpecHtmlCharacterEnum.values()) {
+            capacity += StringUtils.length(i.getEntity()) + StringUtils.length(i.getEntityCode());
+        }
+        ENTITY_NEXT = new short[capacity][];
+        ENTITY_VALUE = new char[capacity];
+        int nodes = 1;
+        for (WhiteSpaceUtil.SpecHtmlCharacterEnum i : WhiteSpaceUtil.SpecHtmlCharacterEnum.values()) {
+            char c = (char) Integer.parseInt(i.getUnicodeRegex().substring(2), 16);
+            nodes = defineEntity(i.getEntity(), c, nodes);
+            nodes = defineEntity(i.getEntityCode(), c, nodes);
+        }
+    }
+
+    private static int defineEntity(String entity, char c, int nodes) {
+        if (entity == null) {
+            return nodes;
+        }
+        int node = 0;
+        for (int i = 1; i < entity.length(); i++) {
+            char e = entity.charAt(i);
+            if (ENTITY_NEXT[node] == null) {
+                ENTITY_NEXT[node] = new short[128];
+            }
+            if (ENTITY_NEXT[node][e] == 0) {
+                ENTITY_NEXT[node][e] = (short) nodes++;
+            }
+            node = ENTITY_NEXT[node][e];
+        }
+        ENTITY_VALUE[node] = (char) (c + 1);
+        return nodes;
+    }
+
+    /**
+     * Match an entity of the {@link WhiteSpaceUtil.SpecHtmlCharacterEnum} at the {@code &} of the input
+     *
+     * @param in   the input
+     * @param from the index of the '&'
+     * @param to   the end of the input, exclusive
+     * @return the length of the entity shifted by 16 and the decoded char, -1 if none matches
+     */
+    static int matchEntity(CharSequence in, int from, int to) {
+        int node = 0;
+        for (int i = from + 1; i < to; i++) {
+            char e = in.charAt(i);
+            short[] next = ENTITY_NEXT[node];
+            if (e >= 128 || next == null || (node = next[e]) == 0) {
+                return -1;
+            }
+            if (ENTITY_VALUE[node] != 0) {
+                // entities end with ';', so no entity is the prefix of another
+                return (i + 1 - from) << 16 | (ENTITY_VALUE[node] - 1);
+            }
+        }
+        return -1;
+    }
+
+    private WhiteSpaceEngine() {
+    }
+
+    private static void define(char c, int charClass) {
+        page(c)[c & 0xFF] = (byte) (charClass << LINE_SHIFT | charClass << TEXT_SHIFT);
+    }
+
+    private static byte[] page(char c) {
+        byte[] page = PAGES[c >>> 8];
+        if (page == null) {
+            PAGES[c >>> 8] = page = new byte[256];
+        }
+        return page;
+    }
+
+    /**
+     * The class of a char
+     *
+     * @param c          the char
+     * @param splitLines whether line breaks are classified as {@link #LINE_BREAK}
+     * @return one of {@link #KEEP}, {@link #SPACE}, {@link #EMPTY} or {@link #LINE_BREAK}
+     */
+    static int classOf(char c, boolean splitLines) {
+        return charClass(c, splitLines ? TEXT_SHIFT : LINE_SHIFT);
+    }
+
+    /**
+     * Sanitize the whole input
+     *
+     * @param str        the input, not empty
+     * @param splitLines whether to split lines
+     * @param separator  the separator of the split lines
+     * @return the sanitized string, the input itself if nothing changed
+     */
+    static String sanitize(String str, boolean splitLines, String separator) {
+        return sanitize(str, splitLines, separator, false);
+    }
+
+    /**
+     * Sanitize the whole input
+     *
+     * @param str        the input, not empty
+     * @param splitLines whether to split lines
+     * @param separator  the separator of the split lines
+     * @param entities   whether to decode the entities
+     * @return the sanitized string, the input itself if nothing changed
+     */
+    static String sanitize(String str, boolean splitLines, String separator, boolean entities) {
+        if (isClean(str, splitLines) && !(entities && str.indexOf('&') >= 0)) {
+            return str;
+        }
+        StringBuilder out = new StringBuilder(str.length());
+        finish(out, append(str, 0, str.length(), out, splitLines, separator, start(out), entities));
+        // e.g. single line breaks kept by the platform line separator
+        if (out.length() == str.length() && str.contentEquals(out)) {
+            return str;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Prescan proving the input is left unchanged by the pass, without allocating. Runs of printable ASCII are checked
+     * four chars at a time, packed into a long.
+     *
+     * @param str        the input, not empty
+     * @param splitLines whether to split lines
+     * @return true if the input is already sanitized, false if it may change
+     */
+    static boolean isClean(String str, boolean splitLines) {
+        int length = str.length();
+        // trimmed
+        if (str.charAt(0) <= ' ' || str.charAt(length - 1) <= ' ') {
+            return false;
+        }
+        boolean previousSpace = false;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long word = str.charAt(i) | (long) str.charAt(i + 1) << 16 | (long) str.charAt(i + 2) << 32
+                | (long) str.charAt(i + 3) << 48;
+            // the high bit of a lane is set if its char is below ' ' or above '~'
+            if ((((word - ' ' * LANES) | (word + (0x7FFF - '~') * LANES) | word) & HIGH_BITS) == 0) {
+                // printable ASCII: only single spaces, the high bit of a lane is set if its char is ' '
+                long spaces = ~((word ^ ' ' * LANES) + 0x7FFF * LANES) & HIGH_BITS;
+                if ((spaces & spaces << 16) != 0 || previousSpace && (spaces & 0x8000) != 0) {
+                    return false;
+                }
+                previousSpace = (spaces & 0x8000L << 48) != 0;
+            } else {
+                for (int j = i; j < i + 4; j++) {
+                    int clean = cleanChar(str.charAt(j), splitLines, previousSpace);
+                    if (clean < 0) {
+                        return false;
+                    }
+                    previousSpace = clean > 0;
+                }
+            }
+        }
+        for (; i < length; i++) {
+            int clean = cleanChar(str.charAt(i), splitLines, previousSpace);
+            if (clean < 0) {
+                return false;
+            }
+            previousSpace = clean > 0;
+        }
+        return true;
+    }
+
+    // 1 if the char is a single space, 0 if it is kept, -1 if it changes
+    private static int cleanChar(char c, boolean splitLines, boolean previousSpace) {
+        int charClass = classOf(c, splitLines);
+        if (charClass == KEEP) {
+            return 0;
+        }
+        return charClass == SPACE && c == ' ' && !previousSpace ? 1 : -1;
+    }
+
+    /**
+     * @param out the output buffer
+     * @return the state to start a pass appending to the output buffer
+     */
+    static long start(StringBuilder out) {
+        return (long) out.length() << 2;
+    }
+
+    /**
+     * Consume a chunk of the input
+     *
+     * @param in         the input
+     * @param from       the start of the chunk, inclusive
+     * @param to         the end of the chunk, exclusive
+     * @param out        the output buffer
+     * @param splitLines whether to split lines
+     * @param separator  the separator of the split lines
+     * @param state      the state returned by the previous call
+     * @return the new state
+     */
+    static long append(CharSequence in, int from, int to, StringBuilder out, boolean splitLines, String separator,
+                       long state) {
+        return append(in, from, to, out, splitLines, separator, state, false);
+    }
+
+    /**
+     * Consume a chunk of the input, an entity must not span two chunks
+     *
+     * @param in         the input
+     * @param from       the start of the chunk, inclusive
+     * @param to         the end of the chunk, exclusive
+     * @param out        the output buffer
+     * @param splitLines whether to split lines
+     * @param separator  the separator of the split lines
+     * @param state      the state returned by the previous call
+     * @param entities   whether to decode the entities
+     * @return the new state
+     */
+    static long append(CharSequence in, int from, int to, StringBuilder out, boolean splitLines, String separator,
+                       long state, boolean entities) {
+        int shift = splitLines ? TEXT_SHIFT : LINE_SHIFT;
+        for (int i = from; i < to; i++) {
+            char c = in.charAt(i);
+            if (c == '&' && entities) {
+                int entity = matchEntity(in, i, to);
+                if (entity >= 0) {
+                    c = (char) entity;
+                    i += (entity >>> 16) - 1;
+                }
+            }
+            state = step(c, charClass(c, shift), out, separator, state);
+        }
+        return state;
+    }
+
+    /**
+     * Consume a chunk of a char array
+     *
+     * @param in         the input
+     * @param from       the start of the chunk, inclusive
+     * @param to         the end of the chunk, exclusive
+     * @param out        the output buffer
+     * @param splitLines whether to split lines
+     * @param separator  the separator of the split lines
+     * @param state      the state returned by the previous call
+     * @return the new state
+     */
+    static long append(char[] in, int from, int to, StringBuilder out, boolean splitLines, String separator,
+                       long state) {
+        int shift = splitLines ? TEXT_SHIFT : LINE_SHIFT;
+        for (int i = from; i < to; i++) {
+            char c = in[i];
+            state = step(c, charClass(c, shift), out, separator, state);
+        }
+        return state;
+    }
+
+    private static int charClass(char c, int shift) {
+        byte[] page = PAGES[c >>> 8];
+        return page == null ? KEEP : page[c & 0xFF] >>> shift & 3;
+    }
+
+    // appends one char of the class, small enough to be inlined in the loops
+    private static long step(char c, int charClass, StringBuilder out, String separator, long state) {
+        int lineStart = (int) (state >> 2);
+        if (charClass == LINE_BREAK) {
+            if ((state & IN_LINE_BREAK) == 0) {
+                trimTrailing(out, lineStart);
+            }
+            return (long) lineStart << 2 | IN_LINE_BREAK;
+        }
+        if ((state & IN_LINE_BREAK) != 0) {
+            // a new line starts
+            out.append(separator);
+            lineStart = out.length();
+        }
+        if (charClass == KEEP) {
+            // leading chars to trim are never appended
+            if (c > ' ' || out.length() != lineStart) {
+                out.append(c);
+            }
+        } else if (charClass == SPACE) {
+            if ((state & PREVIOUS_SPACE) == 0 && out.length() != lineStart) {
+                out.append(' ');
+            }
+            return (long) lineStart << 2 | PREVIOUS_SPACE;
+        }
+        // empty chars are deleted, but still end a run of spaces
+        return (long) lineStart << 2;
+    }
+
+    /**
+     * End the pass, trimming the last line
+     *
+     * @param out   the output buffer
+     * @param state the state returned by the last call of {@link #append}
+     */
+    static void finish(StringBuilder out, long state) {
+        // a trailing line break leaves an empty line, which is dropped like String.split does
+        if ((state & IN_LINE_BREAK) == 0) {
+            trimTrailing(out, (int) (state >> 2));
+        }
+    }
+
+    /**
+     * The length of the output which is final, i.e. cannot be trimmed by the rest of the input
+     *
+     * @param out   the output buffer
+     * @param state the state returned by the last call of {@link #append}
+     * @return the length of the final output
+     */
+    static int finalLength(StringBuilder out, long state) {
+        if ((state & IN_LINE_BREAK) != 0) {
+            return out.length();
+        }
+        return trimmedLength(out, (int) (state >> 2));
+    }
+
+    /**
+     * Adjust the state after the first chars of the output buffer are removed
+     *
+     * @param state   the state returned by the last call of {@link #append}
+     * @param removed the number of removed chars, not beyond {@link #finalLength(StringBuilder, long)}
+     * @return the new state
+     */
+    static long removed(long state, int removed) {
+        // a line started before the buffer has chars not to trim, marked by -1
+        long lineStart = Math.max((state >> 2) - removed, -1);
+        return lineStart << 2 | state & 3;
+    }
+
+    private static void trimTrailing(StringBuilder out, int lineStart) {
+        out.setLength(trimmedLength(out, lineStart));
+    }
+
+    private static int trimmedLength(StringBuilder out, int lineStart) {
+        int length = out.length();
+        int min = Math.max(lineStart, 0);
+        while (length > min && out.charAt(length - 1) <= ' ') {
+            length--;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,225 @@
+package com.mclamee.tools.sanitizer.util;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk tool to sanitize every line of a large UTF-8 file, like a CSV or TSV export, by
+ * {@link WhiteSpaceUtil#sanitizeLine(String)} rules
+ * <p>
+ * The input is memory-mapped and split into line-aligned chunks, which are sanitized in parallel directly on the UTF-8
+ * bytes and written in order to the output. Lines are split by {@code \n}, a {@code \r} before it is deleted as an
+ * empty char; the number of lines is kept.
+ * <p>
+ * Each chunk in flight holds a heap buffer of its size, their number is bounded by the memory budget, not only by the
+ * number of cores: {@code max(2, memoryBudget / chunkSize)} chunks at most.
+ * <p>
+ * Usage: {@code java com.mclamee.tools.sanitizer.util.WhiteSpaceFileSanitizer <input> <output> [parallelism]
+ * [memoryBudgetMB]}
+ */
+@Slf4j
+public final class WhiteSpaceFileSanitizer {
+    private static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+    private static final long DEFAULT_MEMORY_BUDGET = 128 << 20;
+    private static final byte LINE_FEED = '\n';
+
+    private WhiteSpaceFileSanitizer() {
+    }
+
+    /**
+     * The achieved throughput
+     */
+    @Value
+    public static class Report {
+        long bytesRead;
+        long bytesWritten;
+        long lines;
+        int chunks;
+        // the maximum number of chunks in flight
+        int window;
+        long elapsedNanos;
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytesRead / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Sanitized %d lines, %d bytes into %d bytes in %d chunks, %d in flight, %.1f ms, %.1f MB/s",
+                lines, bytesRead, bytesWritten, chunks, window, elapsedNanos / 1e6, megabytesPerSecond());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: " + WhiteSpaceFileSanitizer.class.getName() +
+                " <input> <output> [parallelism] [memoryBudgetMB]");
+            System.exit(1);
+        }
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long memoryBudget = args.length > 3 ? Long.parseLong(args[3]) << 20 : DEFAULT_MEMORY_BUDGET;
+        Report report = sanitizeLines(Paths.get(args[0]), Paths.get(args[1]), parallelism, DEFAULT_CHUNK_SIZE,
+            memoryBudget);
+        System.out.println(report);
+    }
+
+    /**
+     * To sanitize every line of the input file into the output file, using all the cores
+     *
+     * @param input  the input file
+     * @param output the output file, created or truncated
+     * @return the report
+     * @throws IOException if reading or writing fails
+     */
+    public static Report sanitizeLines(Path input, Path output) throws IOException {
+        return sanitizeLines(input, output, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * To sanitize every line of the input file into the output file
+     *
+     * @param input       the input file
+     * @param output      the output file, created or truncated
+     * @param parallelism the number of threads
+     * @param chunkSize   the target size of the chunks, extended to the end of their last line
+     * @return the report
+     * @throws IOException if reading or writing fails
+     */
+    public static Report sanitizeLines(Path input, Path output, int parallelism, int chunkSize) throws IOException {
+        return sanitizeLines(input, output, parallelism, chunkSize, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * To sanitize every line of the input file into the output file, within a memory budget
+     *
+     * @param input        the input file
+     * @param output       the output file, created or truncated
+     * @param parallelism  the number of threads
+     * @param chunkSize    the target size of the chunks, extended to the end of their last line
+     * @param memoryBudget the bytes of the chunks in flight, two chunks are in flight at least
+     * @return the report
+     * @throws IOException if reading or writing fails
+     */
+    public static Report sanitizeLines(Path input, Path output, int parallelism, int chunkSize, long memoryBudget)
+        throws IOException {
+        if (parallelism <= 0 || chunkSize <= 0 || memoryBudget <= 0) {
+            throw new IllegalArgumentException("Parallelism, chunk size and memory budget must be positive: " +
+                parallelism + ", " + chunkSize + ", " + memoryBudget);
+        }
+        // overlap the writes with the sanitizing, even for a budget below two chunks
+        int window = (int) Math.max(2, Math.min(parallelism * 2L, memoryBudget / chunkSize));
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long bytesWritten = 0;
+            long lines = 0;
+            int chunks = 0;
+
+            // bounded window of chunks in flight, written in order
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            long start = 0;
+            while (start < size || !pending.isEmpty()) {
+                if (start < size && pending.size() < window) {
+                    long end = lineEnd(in, Math.min(size, start + chunkSize), size);
+                    if (end - start > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Line too long to be mapped at offset " + start);
+                    }
+                    MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    pending.add(executor.submit(() -> sanitizeChunk(mapped)));
+                    start = end;
+                    chunks++;
+                    continue;
+                }
+                Chunk chunk = pending.poll().get();
+                while (chunk.getBytes().hasRemaining()) {
+                    bytesWritten += out.write(chunk.getBytes());
+                }
+                lines += chunk.getLines();
+            }
+
+            Report report = new Report(size, bytesWritten, lines, chunks, window, System.nanoTime() - startTime);
+            log.info(report.toString());
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sanitizing " + input, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to sanitize " + input, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Value
+    private static class Chunk {
+        ByteBuffer bytes;
+        long lines;
+    }
+
+    /**
+     * The end of the line containing the byte before the given position, just after its line feed
+     */
+    private static long lineEnd(FileChannel in, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size && (position == 0 || !isLineFeed(in, position - 1))) {
+            ((Buffer) buffer).clear();
+            int n = in.read(buffer, position);
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == LINE_FEED) {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return position;
+    }
+
+    private static boolean isLineFeed(FileChannel in, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        return in.read(buffer, position) == 1 && buffer.get(0) == LINE_FEED;
+    }
+
+    private static Chunk sanitizeChunk(ByteBuffer chunk) {
+        // a line never grows
+        ByteBuffer out = ByteBuffer.allocate(chunk.remaining());
+        ByteBuffer line = chunk.duplicate();
+        long lines = 0;
+        int limit = chunk.limit();
+        int lineStart = chunk.position();
+        for (int i = lineStart; i < limit; i++) {
+            if (chunk.get(i) == LINE_FEED) {
+                ((Buffer) line).limit(i).position(lineStart);
+                WhiteSpaceUtf8.sanitizeLine(line, out);
+                out.put(LINE_FEED);
+                lineStart = i + 1;
+                lines++;
+            }
+        }
+        if (lineStart < limit) {
+            // the last line of the file, without line feed
+            ((Buffer) line).limit(limit).position(lineStart);
+            WhiteSpaceUtf8.sanitizeLine(line, out);
+            lines++;
+        }
+        ((Buffer) out).flip();
+        return new Chunk(out, lines);
+    }
+}
@@ -0,0 +1,48 @@
+package com.mclamee.tools.sanitizer.util;
+
+/**
+ * {@link WhiteSpaceUtil#sanitizeLine(String)} as a fusable {@link CharSanitizer}: the chars up to ' ' following the
+ * last printable one are held back until another printable char comes, so that the trailing ones are trimmed
+ */
+public class WhiteSpaceLineSanitizer implements CharSanitizer {
+
+    @Override
+    public Sink open(Sink downstream) {
+        return new Sink() {
+            private final StringBuilder pending = new StringBuilder();
+            private boolean started;
+            private boolean previousSpace;
+
+            @Override
+            public void append(char c) {
+                int charClass = WhiteSpaceEngine.classOf(c, false);
+                if (charClass == WhiteSpaceEngine.KEEP) {
+                    if (c > ' ') {
+                        for (int i = 0; i < pending.length(); i++) {
+                            downstream.append(pending.charAt(i));
+                        }
+                        pending.setLength(0);
+                        downstream.append(c);
+                        started = true;
+                    } else if (started) {
+                        pending.append(c);
+                    }
+                    previousSpace = false;
+                } else if (charClass == WhiteSpaceEngine.SPACE) {
+                    if (!previousSpace && started) {
+                        pending.append(' ');
+                    }
+                    previousSpace = true;
+                } else {
+                    // empty chars are deleted, but still end a run of spaces
+                    previousSpace = false;
+                }
+            }
+
+            @Override
+            public void end() {
+                downstream.end();
+            }
+        };
+    }
+}
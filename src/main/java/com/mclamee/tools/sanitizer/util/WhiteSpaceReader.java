@@ -0,0 +1,95 @@
+package com.mclamee.tools.sanitizer.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Reader sanitizing the white spaces of another Reader on the fly, with the same result as
+ * {@link WhiteSpaceUtil#sanitize(String, boolean)} on the whole text
+ * <p>
+ * The text is read through fixed-size buffers, runs of white spaces and line breaks straddling the buffers are
+ * handled. Only the chars at the end of the current line which may still be trimmed are held back: the memory used
+ * does not depend on the size of the text, except for a run of the control chars U+0000 to U+0008 or U+000E to
+ * U+001F. They are not white spaces, but are trimmed at the end of a line like {@link String#trim()} does: such a run
+ * is held back whole until a following char keeps it or the end of its line trims it, so a NUL-padded line is
+ * buffered up to its padding.
+ */
+public class WhiteSpaceReader extends Reader {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final String separator;
+    private final char[] buffer;
+    private final CharBuffer chunk;
+    private final StringBuilder out;
+    // out[0, position) is read, out[position, finalLength) can be read, the rest may still be trimmed
+    private int position;
+    private int finalLength;
+    private long state;
+    private boolean endOfInput;
+
+    /**
+     * @param in                the Reader to sanitize
+     * @param mergeLinesBySpace merge indicator
+     */
+    public WhiteSpaceReader(Reader in, boolean mergeLinesBySpace) {
+        this(in, mergeLinesBySpace, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param in                the Reader to sanitize
+     * @param mergeLinesBySpace merge indicator
+     * @param bufferSize        the size of the read buffer
+     */
+    public WhiteSpaceReader(Reader in, boolean mergeLinesBySpace, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.in = in;
+        this.separator = mergeLinesBySpace ? " " : System.lineSeparator();
+        this.buffer = new char[bufferSize];
+        this.chunk = CharBuffer.wrap(buffer);
+        this.out = new StringBuilder(bufferSize + separator.length());
+        this.state = WhiteSpaceEngine.start(out);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == finalLength) {
+            if (endOfInput) {
+                return -1;
+            }
+            fill();
+        }
+        int n = Math.min(len, finalLength - position);
+        out.getChars(position, position + n, cbuf, off);
+        position += n;
+        return n;
+    }
+
+    private void fill() throws IOException {
+        // drop what has been read, keeping the chars which may still be trimmed
+        out.delete(0, position);
+        state = WhiteSpaceEngine.removed(state, position);
+        position = 0;
+
+        int n = in.read(buffer);
+        if (n < 0) {
+            endOfInput = true;
+            WhiteSpaceEngine.finish(out, state);
+            finalLength = out.length();
+        } else {
+            state = WhiteSpaceEngine.append(chunk, 0, n, out, true, separator, state);
+            finalLength = WhiteSpaceEngine.finalLength(out, state);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,178 @@
+package com.mclamee.tools.sanitizer.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The util to sanitize the white spaces of UTF-8 encoded bytes directly, without decoding them to String
+ * <p>
+ * The multi-byte encodings of the {@link WhiteSpaceUtil.SpecHtmlCharacterEnum} characters (U+00A0, U+2000-U+200F,
+ * U+3000, U+FEFF...) are recognized in place, all other bytes are copied as is. For valid UTF-8 input, the output is
+ * the UTF-8 encoding of {@link WhiteSpaceUtil#sanitize(String, boolean)} and {@link WhiteSpaceUtil#sanitizeLine(String)}
+ * of the decoded text. Heap and direct {@link ByteBuffer}s are both supported.
+ */
+public final class WhiteSpaceUtf8 {
+    private static final byte[] SPACE = {' '};
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    // any char above ' ' which is kept, for bytes which are not valid UTF-8
+    private static final char INVALID = '\uFFFD';
+
+    private WhiteSpaceUtf8() {
+    }
+
+    /**
+     * To sanitize UTF-8 bytes and merge lines
+     *
+     * @param utf8              the input bytes
+     * @param mergeLinesBySpace merge indicator
+     * @return the sanitized bytes
+     */
+    public static byte[] sanitize(byte[] utf8, boolean mergeLinesBySpace) {
+        ByteBuffer out = ByteBuffer.allocate(maxLength(utf8.length, mergeLinesBySpace));
+        sanitize(ByteBuffer.wrap(utf8), out, mergeLinesBySpace);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * To sanitize UTF-8 bytes and merge lines, from the remaining bytes of the input buffer to the output buffer
+     *
+     * @param in                the input buffer, consumed up to its limit
+     * @param out               the output buffer, with at least {@link #maxLength(int, boolean)} bytes remaining
+     * @param mergeLinesBySpace merge indicator
+     * @throws java.nio.BufferOverflowException if the output buffer is too small
+     */
+    public static void sanitize(ByteBuffer in, ByteBuffer out, boolean mergeLinesBySpace) {
+        sanitize(in, out, true, mergeLinesBySpace ? SPACE : LINE_SEPARATOR);
+    }
+
+    /**
+     * To sanitize a single UTF-8 line, from the remaining bytes of the input buffer to the output buffer
+     *
+     * @param in  the input buffer, consumed up to its limit
+     * @param out the output buffer, with at least as many bytes remaining as the input
+     * @throws java.nio.BufferOverflowException if the output buffer is too small
+     */
+    public static void sanitizeLine(ByteBuffer in, ByteBuffer out) {
+        sanitize(in, out, false, null);
+    }
+
+    /**
+     * To sanitize UTF-8 bytes and merge lines, compacting them in place
+     *
+     * @param utf8              the bytes
+     * @param offset            the offset of the input
+     * @param length            the length of the input
+     * @param mergeLinesBySpace merge indicator, lines can only be kept in place by a one byte line separator
+     * @return the length of the sanitized bytes, starting at the offset
+     */
+    public static int sanitizeInPlace(byte[] utf8, int offset, int length, boolean mergeLinesBySpace) {
+        byte[] separator = mergeLinesBySpace ? SPACE : LINE_SEPARATOR;
+        if (separator.length > 1) {
+            throw new IllegalArgumentException("Cannot keep lines in place by the line separator " +
+                Arrays.toString(separator) + ", please merge lines");
+        }
+        ByteBuffer out = ByteBuffer.wrap(utf8, offset, length);
+        // never writes beyond the byte read
+        sanitize(ByteBuffer.wrap(utf8, offset, length), out, true, separator);
+        return out.position() - offset;
+    }
+
+    /**
+     * The maximum length of the sanitized bytes
+     *
+     * @param length            the length of the input
+     * @param mergeLinesBySpace merge indicator
+     * @return the maximum length of the output
+     */
+    public static int maxLength(int length, boolean mergeLinesBySpace) {
+        // every line break byte may become a line separator
+        return mergeLinesBySpace ? length : length * Math.max(1, LINE_SEPARATOR.length);
+    }
+
+    private static void sanitize(ByteBuffer in, ByteBuffer out, boolean splitLines, byte[] separator) {
+        int lineStart = out.position();
+        boolean previousSpace = false;
+        boolean inLineBreak = false;
+
+        int limit = in.limit();
+        int i = in.position();
+        while (i < limit) {
+            // decode the char, only to classify it
+            int b = in.get(i) & 0xFF;
+            int length = 1;
+            char c;
+            if (b < 0x80) {
+                c = (char) b;
+            } else if (b >= 0xC2 && b <= 0xDF && i + 1 < limit && isContinuation(in.get(i + 1))) {
+                c = (char) ((b & 0x1F) << 6 | in.get(i + 1) & 0x3F);
+                length = 2;
+            } else if (b >= 0xE0 && b <= 0xEF && i + 2 < limit && isContinuation(in.get(i + 1)) && isContinuation(in.get(i + 2))) {
+                c = (char) ((b & 0x0F) << 12 | (in.get(i + 1) & 0x3F) << 6 | in.get(i + 2) & 0x3F);
+                // overlong encodings are not decoded
+                if (c < 0x800) {
+                    c = INVALID;
+                } else {
+                    length = 3;
+                }
+            } else {
+                c = INVALID;
+            }
+            int charClass = WhiteSpaceEngine.classOf(c, splitLines);
+
+            if (charClass == WhiteSpaceEngine.LINE_BREAK) {
+                if (!inLineBreak) {
+                    ((Buffer) out).position(trimmedLength(out, lineStart));
+                    inLineBreak = true;
+                }
+                previousSpace = false;
+                i += length;
+                continue;
+            }
+            if (inLineBreak) {
+                // a new line starts
+                out.put(separator);
+                lineStart = out.position();
+                inLineBreak = false;
+            }
+            if (charClass == WhiteSpaceEngine.KEEP) {
+                // leading chars to trim are never written
+                if (c > ' ' || out.position() != lineStart) {
+                    for (int j = 0; j < length; j++) {
+                        out.put(in.get(i + j));
+                    }
+                }
+                previousSpace = false;
+            } else if (charClass == WhiteSpaceEngine.SPACE) {
+                if (!previousSpace && out.position() != lineStart) {
+                    out.put((byte) ' ');
+                }
+                previousSpace = true;
+            } else {
+                // empty chars are deleted, but still end a run of spaces
+                previousSpace = false;
+            }
+            i += length;
+        }
+        ((Buffer) in).position(limit);
+
+        // a trailing line break leaves an empty line, which is dropped like String.split does
+        if (!inLineBreak) {
+            ((Buffer) out).position(trimmedLength(out, lineStart));
+        }
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private static int trimmedLength(ByteBuffer out, int lineStart) {
+        int position = out.position();
+        // only ASCII is trimmed, continuation bytes are above 0x7F
+        while (position > lineStart && (out.get(position - 1) & 0xFF) <= ' ') {
+            position--;
+        }
+        return position;
+    }
+}
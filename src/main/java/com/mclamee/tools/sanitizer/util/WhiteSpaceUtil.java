@@ -1,7 +1,9 @@
 package com.mclamee.tools.sanitizer.util;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Arrays;
-import java.util.regex.Pattern;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -11,9 +13,6 @@ import org.apache.commons.lang3.StringUtils;
  * The util to sanitize the white spaces in the user inputs
  */
 public class WhiteSpaceUtil {
-    private static Pattern lineBreaksRegexPattern = Pattern.compile("[\\n\\r\\v]+");
-    private static Pattern emptyRegexStrPattern = Pattern.compile("[" + SpecHtmlCharacterEnum.emptyAppearanceRegexStr() + "]+");
-    private static Pattern spaceRegexStrPattern = Pattern.compile("[\\f\\t" + SpecHtmlCharacterEnum.spaceAppearanceRegexStr() + "]+");
 
     /**
      * To sanitize string and merge lines
@@ -26,6 +25,9 @@ public class WhiteSpaceUtil {
 
     /**
      * To sanitize string and merge lines
+     * <p>
+     * An input which needs no change is returned as is, without allocating: {@code result != str} tells whether
+     * anything changed.
      *
      * @param str               the input string
      * @param mergeLinesBySpace merge indicator
@@ -34,23 +36,102 @@ public class WhiteSpaceUtil {
         if (StringUtils.isEmpty(str)) {
             return str;
         }
-        StringBuilder sb = new StringBuilder();
-        String[] splitList = lineBreaksRegexPattern.split(str);
-        if (splitList != null && splitList.length > 0) {
-            for (int i = 0; i < splitList.length; i++) {
-                String splitStr = splitList[i];
-                String subStr = sanitizeLine(splitStr);
-                if (i > 0) {
-                    sb.append(mergeLinesBySpace ? " " : System.lineSeparator());
-                }
-                sb.append(subStr);
-            }
+        return WhiteSpaceEngine.sanitize(str, true, mergeLinesBySpace ? " " : System.lineSeparator());
+    }
+
+    /**
+     * To sanitize a text streamed from the reader to the writer, with constant memory
+     * <p>
+     * Same as {@link #sanitize(String, boolean)} on the whole text. Neither the reader nor the writer is closed. A run
+     * of control chars at the end of a line, like a NUL padding, is held in memory until the end of its line, see
+     * {@link WhiteSpaceReader}.
+     *
+     * @param reader            the input text
+     * @param writer            the output text
+     * @param mergeLinesBySpace merge indicator
+     * @return the number of chars written
+     * @throws IOException if reading or writing fails
+     */
+    public static long sanitize(Reader reader, Writer writer, boolean mergeLinesBySpace) throws IOException {
+        WhiteSpaceReader sanitized = new WhiteSpaceReader(reader, mergeLinesBySpace);
+        char[] buffer = new char[8192];
+        long count = 0;
+        int n;
+        while ((n = sanitized.read(buffer)) != -1) {
+            writer.write(buffer, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * To sanitize a text and merge lines into a caller-owned buffer, which can be reused without allocating
+     * <p>
+     * Same as {@link #sanitize(String, boolean)}, appended after the content of the buffer. Any CharSequence, like a
+     * CharBuffer slice or a StringBuilder, is read as is without {@code toString()}.
+     *
+     * @param in                the input text, may be null
+     * @param out               the output buffer, not the input
+     * @param mergeLinesBySpace merge indicator
+     * @return the number of chars appended
+     */
+    public static int sanitizeTo(CharSequence in, StringBuilder out, boolean mergeLinesBySpace) {
+        return appendTo(in, out, true, mergeLinesBySpace ? " " : System.lineSeparator());
+    }
+
+    /**
+     * To sanitize a range of a char array and merge lines into a caller-owned buffer, which can be reused without
+     * allocating
+     * <p>
+     * Same as {@link #sanitize(String, boolean)}, appended after the content of the buffer.
+     *
+     * @param in                the input chars
+     * @param offset            the start of the range
+     * @param length            the length of the range
+     * @param out               the output buffer
+     * @param mergeLinesBySpace merge indicator
+     * @return the number of chars appended
+     */
+    public static int sanitizeTo(char[] in, int offset, int length, StringBuilder out, boolean mergeLinesBySpace) {
+        if (offset < 0 || length < 0 || length > in.length - offset) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length +
+                ") out of bounds for length " + in.length);
         }
-        return sb.toString();
+        int start = out.length();
+        String separator = mergeLinesBySpace ? " " : System.lineSeparator();
+        WhiteSpaceEngine.finish(out, WhiteSpaceEngine.append(in, offset, offset + length, out, true, separator,
+            WhiteSpaceEngine.start(out)));
+        return out.length() - start;
     }
 
     /**
-     * To sanitize single string line
+     * To sanitize single line into a caller-owned buffer, which can be reused without allocating
+     * <p>
+     * Same as {@link #sanitizeLine(String)}, appended after the content of the buffer.
+     *
+     * @param in  the input line, may be null
+     * @param out the output buffer, not the input
+     * @return the number of chars appended
+     */
+    public static int sanitizeLineTo(CharSequence in, StringBuilder out) {
+        return appendTo(in, out, false, null);
+    }
+
+    private static int appendTo(CharSequence in, StringBuilder out, boolean splitLines, String separator) {
+        if (in == out) {
+            throw new IllegalArgumentException("Cannot sanitize a buffer into itself");
+        }
+        if (StringUtils.isEmpty(in)) {
+            return 0;
+        }
+        int start = out.length();
+        WhiteSpaceEngine.finish(out, WhiteSpaceEngine.append(in, 0, in.length(), out, splitLines, separator,
+            WhiteSpaceEngine.start(out)));
+        return out.length() - start;
+    }
+
+    /**
+     * To sanitize single string line, returning the input as is if it needs no change
      *
      * @param str the input string
      */
@@ -59,14 +140,62 @@ public class WhiteSpaceUtil {
             return str;
         }
 
-        // replace all space-like chars to ASCII#32(space)
-        String spaced = spaceRegexStrPattern.matcher(str).replaceAll(" ");
+        // replace all space-like chars to ASCII#32(space), delete all empty chars and trim spaces
+        return WhiteSpaceEngine.sanitize(str, false, null);
+    }
 
-        // delete all empty chars
-        String sanitized = emptyRegexStrPattern.matcher(spaced).replaceAll("");
+    /**
+     * To sanitize an HTML-pasted string and merge lines, decoding the entities of the {@link SpecHtmlCharacterEnum},
+     * like {@code &nbsp;} or {@code &#8203;}, within the same pass
+     * <p>
+     * Other entities, like {@code &amp;}, are kept as is. An input which needs no change is returned as is.
+     *
+     * @param str               the input string
+     * @param mergeLinesBySpace merge indicator
+     */
+    public static String sanitizeHtml(String str, boolean mergeLinesBySpace) {
+        if (StringUtils.isEmpty(str)) {
+            return str;
+        }
+        return WhiteSpaceEngine.sanitize(str, true, mergeLinesBySpace ? " " : System.lineSeparator(), true);
+    }
 
-        // trim spaces
-        return StringUtils.trim(sanitized);
+    /**
+     * To sanitize an HTML-pasted single string line, decoding the entities of the {@link SpecHtmlCharacterEnum}
+     * within the same pass
+     *
+     * @param str the input string
+     */
+    public static String sanitizeHtmlLine(String str) {
+        if (StringUtils.isEmpty(str)) {
+            return str;
+        }
+        return WhiteSpaceEngine.sanitize(str, false, null, true);
+    }
+
+    /**
+     * Whether the string is already sanitized, without allocating unless lines are split by the line separator
+     *
+     * @param str               the input string
+     * @param mergeLinesBySpace merge indicator
+     * @return true if {@link #sanitize(String, boolean)} leaves the string unchanged
+     */
+    public static boolean isSanitized(String str, boolean mergeLinesBySpace) {
+        if (StringUtils.isEmpty(str) || WhiteSpaceEngine.isClean(str, true)) {
+            return true;
+        }
+        // the prescan rejects any line break, even a line separator which is left unchanged
+        return !mergeLinesBySpace && str.contains(System.lineSeparator()) && sanitize(str, false) == str;
+    }
+
+    /**
+     * Whether the single string line is already sanitized, without allocating
+     *
+     * @param str the input string
+     * @return true if {@link #sanitizeLine(String)} leaves the string unchanged
+     */
+    public static boolean isSanitizedLine(String str) {
+        return StringUtils.isEmpty(str) || WhiteSpaceEngine.isClean(str, false);
     }
 
     /**
@@ -0,0 +1,90 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mclamee.tools.EnableSanitizerModule;
+import com.mclamee.tools.sanitizer.SanitizerAspect;
+import com.mclamee.tools.sanitizer.SanitizerEngine;
+import org.aspectj.lang.Aspects;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AdviceMode;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * The Sanitizer aspect woven at load time, run by the aspectj profile
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SanitizerAspectJTest.AspectJConfig.class)
+public class SanitizerAspectJTest {
+
+    @EnableSanitizerModule(mode = AdviceMode.ASPECTJ)
+    public static class AspectJConfig {
+
+        @Bean
+        public TestControllerBean getController() {
+            return new TestControllerBean();
+        }
+
+        @Bean
+        public TestServiceBean getService() {
+            return new TestServiceBean();
+        }
+    }
+
+    @Autowired
+    private TestControllerBean controller;
+
+    @Autowired
+    private SanitizerEngine engine;
+
+    @BeforeClass
+    public static void woven() {
+        Assume.assumeTrue("SanitizerAspect is not woven, run with -Paspectj", Aspects.hasAspect(SanitizerAspect.class));
+    }
+
+    @Test
+    public void testWoven() {
+        Assert.assertFalse(AopUtils.isAopProxy(controller));
+
+        List<TestUserVo> userVos = new ArrayList<>();
+        userVos.add(new TestUserVo("william test"));
+        List<TestUserVo> result = controller.callDefaultSanitizer(userVos);
+        Assert.assertTrue(result.stream().allMatch(r -> r.getUserName().equals("default")));
+    }
+
+    @Test
+    public void testSelfInvocation() {
+        // sanitized inside the target too
+        TestUserVo resultVo = controller.callSelfInvokedSanitizer(new TestUserVo("wicky test test"));
+        Assert.assertTrue(resultVo.getUserName().equals("replaced"));
+    }
+
+    @Test
+    public void testNotConfigured() {
+        SanitizerAspect aspect = Aspects.aspectOf(SanitizerAspect.class);
+        aspect.setEngine(null);
+        try {
+            controller.callDefaultSanitizer(new ArrayList<>());
+            Assert.fail("Expecting Exception: IllegalStateException");
+        } catch (IllegalStateException e) {
+            // not let through unsanitized
+        } finally {
+            aspect.setEngine(engine);
+        }
+    }
+
+    @Test
+    public void testStaticNotWoven() {
+        TestUserVo resultVo = TestControllerBean.loopCall(new TestUserVo("wicky test test"));
+        Assert.assertTrue(resultVo.getUserName().equals("wicky test test"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SanitizerTestConfig.class)
+public class SanitizerAsyncTest {
+
+    @Autowired
+    private TestControllerBean controller;
+
+    /**
+     * In-process publisher emitting the values on demand, on the requesting thread
+     */
+    private static class IterablePublisher implements Publisher<String> {
+        private final List<String> values;
+        private final List<String> emitted = new ArrayList<>();
+
+        IterablePublisher(String... values) {
+            this.values = Arrays.asList(values);
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super String> subscriber) {
+            Iterator<String> iterator = values.iterator();
+            subscriber.onSubscribe(new Subscription() {
+                private boolean cancelled;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && !cancelled && iterator.hasNext(); i++) {
+                        String value = iterator.next();
+                        emitted.add(value);
+                        subscriber.onNext(value);
+                    }
+                    if (!cancelled && !iterator.hasNext()) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static class RecordingSubscriber implements Subscriber<String> {
+        private final List<String> received = new ArrayList<>();
+        private Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String value) {
+            received.add(value);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    public void testFuture() {
+        CompletableFuture<TestUserVo> future = new CompletableFuture<>();
+        CompletableFuture<TestUserVo> sanitized = controller.callFutureSanitizer(future);
+        // not blocked on the value, sanitized once completed
+        Assert.assertFalse(sanitized.isDone());
+
+        future.complete(new TestUserVo("wicky"));
+        Assert.assertEquals("replaced", sanitized.join().getUserName());
+
+        Assert.assertNull(controller.callFutureSanitizer(null));
+    }
+
+    @Test
+    public void testStageFields() {
+        TestOrderVo order = new TestOrderVo();
+        order.setTitle(" async ");
+        CompletionStage<TestOrderVo> sanitized = controller.callStageFieldSanitizer(CompletableFuture.completedFuture(order));
+        Assert.assertEquals("async", sanitized.toCompletableFuture().join().getTitle());
+    }
+
+    @Test
+    public void testFailedFuture() {
+        CompletableFuture<TestUserVo> future = new CompletableFuture<>();
+        CompletableFuture<TestUserVo> sanitized = controller.callFutureSanitizer(future);
+        future.completeExceptionally(new IllegalStateException("failed"));
+        try {
+            sanitized.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testPublisher() {
+        IterablePublisher source = new IterablePublisher(" a ", "b\u3000", "\u00A0c");
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        controller.callPublisherSanitizer(source).subscribe(subscriber);
+
+        // sanitized one at a time, as demanded
+        subscriber.subscription.request(1);
+        Assert.assertEquals(Arrays.asList("a"), subscriber.received);
+        Assert.assertEquals(1, source.emitted.size());
+
+        subscriber.subscription.request(2);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), subscriber.received);
+        Assert.assertTrue(subscriber.completed);
+        Assert.assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testPublisherNullElement() {
+        IterablePublisher source = new IterablePublisher("a", " ", "c");
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        controller.callNullingPublisherSanitizer(source).subscribe(subscriber);
+
+        // a null element is not emitted, the upstream is cancelled
+        subscriber.subscription.request(3);
+        Assert.assertEquals(Arrays.asList("a"), subscriber.received);
+        Assert.assertTrue(subscriber.error instanceof NullPointerException);
+        Assert.assertEquals(2, source.emitted.size());
+        Assert.assertFalse(subscriber.completed);
+    }
+}
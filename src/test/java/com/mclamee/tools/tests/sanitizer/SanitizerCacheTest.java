@@ -0,0 +1,131 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.mclamee.tools.sanitizer.SanitizerCache;
+import com.mclamee.tools.sanitizer.SanitizerDefinition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SanitizerCacheTest {
+    private static final String TYPE = TestUserVo.class.getName();
+    private static final String CLASS_A = "com.example.A";
+    private static final String CLASS_B = "com.example.B";
+
+    private SanitizerCache cache;
+    private SanitizerDefinition m1;
+    private SanitizerDefinition m2;
+    private SanitizerDefinition m3;
+
+    @Before
+    public void setup() throws NoSuchMethodException {
+        cache = new SanitizerCache();
+        cache.init();
+        m1 = SanitizerDefinition.of(TestControllerBean.class.getMethod("sanitizeVo", TestUserVo.class));
+        m2 = SanitizerDefinition.of(TestControllerBean.class.getMethod("loopCall", TestUserVo.class));
+        m3 = SanitizerDefinition.of(TestControllerBean.class.getMethod("replaceVo", TestUserVo.class));
+    }
+
+    private static SanitizerCache.SanitizerCacheKey key(String className, String sanitizerName, String methodName) {
+        return SanitizerCache.SanitizerCacheKey.builder()
+            .genericTypeName(TYPE)
+            .className(className)
+            .sanitizerName(sanitizerName)
+            .methodName(methodName)
+            .build();
+    }
+
+    @Test
+    public void testRulePrecedence() {
+        cache.put(key(CLASS_B, "special", "m1"), m1);
+        cache.put(key(CLASS_A, "other", "special"), m2);
+        cache.put(key(CLASS_A, "special", "m3"), m3);
+
+        // 1. Type + className + sanitizerName
+        Assert.assertEquals(m3, cache.get(key(CLASS_A, "special", "special"), false));
+        // 2. Type + sanitizerName
+        Assert.assertEquals(m1, cache.get(key("com.example.C", "special", "special"), false));
+        // 3. Type + className + methodName
+        Assert.assertEquals(m2, cache.get(key(CLASS_A, "unknown", "special"), false));
+        // 4. Type + methodName
+        Assert.assertEquals(m1, cache.get(key(CLASS_A, "unknown", "m1"), false));
+        // nothing found
+        Assert.assertNull(cache.get(key(CLASS_A, "unknown", "unknown"), false));
+    }
+
+    @Test
+    public void testManyRuntimeNames() {
+        cache.put(key(CLASS_A, "special", "m1"), m1);
+
+        // misses of arbitrary names are evicted rather than kept, the hits are still resolved
+        for (int i = 0; i < 20000; i++) {
+            Assert.assertNull(cache.get(key("com.example.C" + i, "unknown" + i, "unknown" + i), false));
+        }
+        Assert.assertEquals(m1, cache.get(key(CLASS_A, "special", "special"), false));
+    }
+
+    @Test
+    public void testDefaultRules() {
+        cache.put(key(CLASS_B, SanitizerCache.DEFAULT_KEY, "m1"), m1);
+        cache.put(key(CLASS_A, SanitizerCache.DEFAULT_KEY, "m2"), m2);
+
+        // 5. Type + className + default
+        Assert.assertEquals(m2, cache.get(key(CLASS_A, "unknown", "unknown"), true));
+        // 6. Type + default, the first cached wins
+        Assert.assertEquals(m1, cache.get(key("com.example.C", "unknown", "unknown"), true));
+        // defaults are not used by the named rules
+        Assert.assertNull(cache.get(key("com.example.C", "unknown", "unknown"), false));
+    }
+
+    @Test
+    public void testMissIsInvalidatedByPut() {
+        SanitizerCache.SanitizerCacheKey refKey = key(CLASS_A, "special", "special");
+        Assert.assertNull(cache.get(refKey, false));
+        Assert.assertNull(cache.get(refKey, true));
+
+        cache.put(key(CLASS_A, "special", "m1"), m1);
+        Assert.assertEquals(m1, cache.get(refKey, false));
+    }
+
+    @Test
+    public void testRuntimeRegistration() {
+        SanitizerCache.SanitizerCacheKey refKey = key(CLASS_A, "special", "special");
+        cache.put(key(CLASS_B, "special", "m1"), m1);
+        cache.put(key(CLASS_A, "special", "m2"), m2);
+        cache.freeze();
+        long version = cache.getVersion();
+
+        // replaced in place, it still wins over the Sanitizer of another class
+        Map<SanitizerCache.SanitizerCacheKey, SanitizerDefinition> definitions = new LinkedHashMap<>();
+        definitions.put(key(CLASS_A, "special", "m3"), m3);
+        long registered = cache.register(definitions);
+        Assert.assertTrue(registered > version);
+        Assert.assertEquals(registered, cache.getVersion());
+        Assert.assertEquals(m3, cache.get(refKey, false));
+        // the method name is replaced too
+        Assert.assertEquals(m3, cache.get(key(CLASS_A, "unknown", "m3"), false));
+        Assert.assertNull(cache.get(key(CLASS_A, "unknown", "m2"), false));
+
+        long unregistered = cache.unregister(Collections.singleton(key(CLASS_A, "special", "any")));
+        Assert.assertTrue(unregistered > registered);
+        Assert.assertFalse(cache.exists(key(CLASS_A, "special", "m3")));
+        Assert.assertEquals(m1, cache.get(refKey, false));
+    }
+
+    @Test
+    public void testFrozenCopyOnWrite() {
+        SanitizerCache.SanitizerCacheKey refKey = key(CLASS_A, "special", "special");
+        cache.put(key(CLASS_B, "special", "m1"), m1);
+        cache.freeze();
+        Assert.assertTrue(cache.isFrozen());
+        Assert.assertEquals(m1, cache.get(refKey, false));
+
+        // late caching swaps in a new snapshot
+        cache.put(key(CLASS_A, "special", "m2"), m2);
+        Assert.assertTrue(cache.exists(key(CLASS_A, "special", "m2")));
+        Assert.assertEquals(m2, cache.get(refKey, false));
+    }
+}
@@ -0,0 +1,102 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.mclamee.tools.sanitizer.ResolvedSanitizer;
+import com.mclamee.tools.sanitizer.SanitizerEngine;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SanitizerTestConfig.class)
+public class SanitizerEngineTest {
+
+    @Autowired
+    private SanitizerEngine engine;
+
+    private static Type parameterType(String methodName, Class<?> parameterClass) throws NoSuchMethodException {
+        return TestControllerBean.class.getMethod(methodName, parameterClass).getGenericParameterTypes()[0];
+    }
+
+    @Test
+    public void testSanitize() {
+        TestUserVo resultVo = engine.sanitize(new TestUserVo("wicky test test"), TestUserVo.class, "replacing");
+        Assert.assertTrue(resultVo.getUserName().equals("replaced"));
+    }
+
+    @Test
+    public void testResolver() {
+        // resolved once, the default Sanitizer of the type
+        ResolvedSanitizer<TestUserVo> resolver = engine.resolver(TestUserVo.class, null);
+        Assert.assertFalse(resolver.isLifted());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(resolver.sanitize(new TestUserVo("wicky " + i)).getUserName().equals("changed"));
+        }
+    }
+
+    @Test
+    public void testEmptyChain() {
+        // no names at all, the default Sanitizer of the type
+        ResolvedSanitizer<Object> chain = engine.chain(null, TestUserVo.class);
+        Assert.assertEquals("changed", ((TestUserVo) chain.sanitize(new TestUserVo("wicky"))).getUserName());
+    }
+
+    @Test
+    public void testGenericTypes() throws NoSuchMethodException {
+        List<TestUserVo> userVos = new ArrayList<>(Collections.singletonList(new TestUserVo("william test")));
+        engine.sanitize(userVos, parameterType("callDefaultSanitizer", List.class), "");
+        Assert.assertTrue(userVos.get(0).getUserName().equals("default"));
+
+        // no Sanitizer of the Set, the element Sanitizer is lifted
+        ResolvedSanitizer<Object> resolver = engine.resolver(parameterType("callLiftedSetSanitizer", Set.class), "replacing");
+        Assert.assertTrue(resolver.isLifted());
+        Set<?> result = (Set<?>) resolver.sanitize(new HashSet<>(userVos));
+        Assert.assertTrue(result.stream().allMatch(r -> ((TestUserVo) r).getUserName().equals("replaced")));
+    }
+
+    @Test
+    public void testLiftedViewsAndLists() throws NoSuchMethodException {
+        ResolvedSanitizer<Object> resolver = engine.resolver(parameterType("callLiftedSetSanitizer", Set.class), "replacing");
+        Map<TestUserVo, String> map = new HashMap<>();
+        map.put(new TestUserVo("william test"), "value");
+
+        // a key set view cannot be refilled, a copy is returned and the map is kept
+        Set<?> result = (Set<?>) resolver.sanitize(map.keySet());
+        Assert.assertNotSame(map.keySet(), result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(1, map.size());
+
+        Type stringList = ResolvableType.forClassWithGenerics(List.class, String.class).getType();
+        for (List<String> list : Arrays.<List<String>>asList(new LinkedList<>(), new CopyOnWriteArrayList<>())) {
+            list.addAll(Arrays.asList(" a ", "b\u00A0", null));
+            Assert.assertSame(list, engine.sanitize(list, stringList, "trimmed"));
+            Assert.assertEquals(Arrays.asList("a", "b", null), list);
+        }
+    }
+
+    @Test
+    public void testNotFound() {
+        try {
+            engine.resolver(TestControllerBean.class, "specialName");
+            Assert.fail("Expecting Exception: IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("No default Sanitizer found for " + TestControllerBean.class.getName() + " named specialName",
+                e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.sanitizer.metrics.MicrometerSanitizerMetrics;
+import com.mclamee.tools.sanitizer.metrics.SanitizerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SanitizerTestConfig.class, SanitizerMetricsTest.MetricsConfig.class})
+public class SanitizerMetricsTest {
+    private static final String BEAN = TestControllerBean.class.getName();
+
+    @Configuration
+    public static class MetricsConfig {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public SanitizerMetrics sanitizerMetrics(MeterRegistry registry) {
+            return new MicrometerSanitizerMetrics(registry);
+        }
+    }
+
+    @Autowired
+    private TestControllerBean controller;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Timer timer(String sanitizer, String name, String outcome) {
+        return registry.get(MicrometerSanitizerMetrics.INVOCATIONS)
+            .tag("sanitizer", sanitizer)
+            .tag("name", name)
+            .tag("outcome", outcome)
+            .timer();
+    }
+
+    @Test
+    public void testInvocations() {
+        for (int i = 0; i < 3; i++) {
+            controller.callReplacingSanitizer(new TestUserVo("wicky " + i));
+        }
+
+        // resolved once, invoked three times
+        Assert.assertEquals(1, registry.get(MicrometerSanitizerMetrics.RESOLUTIONS)
+            .tag("sanitizer", BEAN + ".replaceVo").counter().count(), 0);
+        Timer changed = timer(BEAN + ".replaceVo", "replacing", "changed");
+        Assert.assertEquals(3, changed.count());
+        Assert.assertTrue(changed.totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testFusedChain() {
+        controller.callChainSanitizer(" Hello ");
+
+        // instrumented as a whole, under all the Sanitizers of the chain
+        Timer fused = timer(BEAN + ".trimmed," + BEAN + ".lowercase", "trimmed,lowercase", "changed");
+        Assert.assertEquals(1, fused.count());
+    }
+
+    @Test
+    public void testFallback() {
+        List<TestUserVo> userVos = new ArrayList<>();
+        userVos.add(new TestUserVo("william test"));
+        controller.callInvalidSanitizer(userVos, new TestUserVo("wicky"));
+
+        // no List Sanitizer named loopCall, the default one is used; changed in place is not seen
+        Timer fallback = registry.get(MicrometerSanitizerMetrics.INVOCATIONS)
+            .tag("sanitizer", BEAN + ".sanitizeUserListDefault")
+            .tag("name", "loopCall")
+            .tag("fallback", "true")
+            .tag("outcome", "unchanged")
+            .timer();
+        Assert.assertEquals(1, fallback.count());
+    }
+
+    @Test
+    public void testErrors() {
+        try {
+            controller.callFailingSanitizer(new TestUserVo("wicky"));
+            Assert.fail("Expecting Exception: IllegalStateException");
+        } catch (IllegalStateException e) {
+            Timer errors = registry.get(MicrometerSanitizerMetrics.INVOCATIONS)
+                .tag("sanitizer", BEAN + ".failVo")
+                .tag("outcome", "error")
+                .tag("exception", "IllegalStateException")
+                .timer();
+            Assert.assertEquals(1, errors.count());
+        }
+    }
+}
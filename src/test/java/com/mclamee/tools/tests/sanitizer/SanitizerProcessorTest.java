@@ -0,0 +1,192 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerRegistry;
+import com.mclamee.tools.sanitizer.processor.SanitizerProcessor;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SanitizerProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGeneratedRegistry() throws Exception {
+        // generated while compiling the tests
+        Class<?> registryClass = Class.forName(TestControllerBean.class.getName() + SanitizerRegistry.SUFFIX);
+        SanitizerRegistry registry = (SanitizerRegistry) registryClass.newInstance();
+
+        Assert.assertEquals(TestControllerBean.class, registry.declaringClass());
+        List<String> names = Arrays.stream(registry.sanitizers()).map(Method::getName).collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("sanitizeUserListDefault", "sanitizeUserListSpecial", "sanitizeVo", "replaceVo",
+            "failVo", "trimmed", "lowercase", "blankToNull", "loopCall"), names);
+    }
+
+    @Test
+    public void testInvalidSanitizers() throws IOException {
+        String source = "package p;\n" +
+            "import com.mclamee.tools.sanitizer.Sanitizer;\n" +
+            "public class Invalid {\n" +
+            "    @Sanitizer public String notStatic(String s) { return s; }\n" +
+            "    @Sanitizer public static String noParameter() { return null; }\n" +
+            "    @Sanitizer public static String twoParameters(String a, String b) { return a; }\n" +
+            "    @Sanitizer public static Object otherType(String s) { return s; }\n" +
+            "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        Assert.assertFalse(compile("p/Invalid.java", source, diagnostics));
+        List<String> errors = diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .map(d -> d.getMessage(null))
+            .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(
+            "Sanitizer method must be static: notStatic(java.lang.String)",
+            "Sanitizer method must accept one parameter but no parameter found: noParameter()",
+            "Sanitizer method can only accept one parameter but 2 parameters found: twoParameters(java.lang.String,java.lang.String)",
+            "Sanitizer method must return the same type as the parameter: otherType(java.lang.String)"), errors);
+    }
+
+    @Test
+    public void testInvalidPureSanitizers() throws IOException {
+        String source = "package p;\n" +
+            "import com.mclamee.tools.sanitizer.Sanitizer;\n" +
+            "public class Pure {\n" +
+            "    @Sanitizer(pure = true) public static String[] array(String[] s) { return s; }\n" +
+            "    @Sanitizer(pure = true) public static java.util.List<String> list(java.util.List<String> s) { return s; }\n" +
+            "    @Sanitizer(pure = true) public static java.util.Map<String, String> map(java.util.Map<String, String> s) { return s; }\n" +
+            "    @Sanitizer(pure = true) public static StringBuilder mutable(StringBuilder s) { return s; }\n" +
+            "    @Sanitizer(pure = true) public static String string(String s) { return s; }\n" +
+            "    @Sanitizer(pure = true) public static int primitive(int i) { return i; }\n" +
+            "    @Sanitizer(pure = true) public static Long wrapper(Long l) { return l; }\n" +
+            "    @Sanitizer(pure = true) public static java.time.DayOfWeek day(java.time.DayOfWeek d) { return d; }\n" +
+            "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        Assert.assertFalse(compile("p/Pure.java", source, diagnostics));
+        List<String> errors = diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .map(d -> d.getMessage(null))
+            .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(
+            "Pure Sanitizer method must accept a String, a primitive, a wrapper or an enum: array(java.lang.String[])",
+            "Pure Sanitizer method must accept a String, a primitive, a wrapper or an enum: list(java.util.List<java.lang.String>)",
+            "Pure Sanitizer method must accept a String, a primitive, a wrapper or an enum: map(java.util.Map<java.lang.String,java.lang.String>)",
+            "Pure Sanitizer method must accept a String, a primitive, a wrapper or an enum: mutable(java.lang.StringBuilder)"),
+            errors);
+    }
+
+    @Test
+    public void testInaccessibleTypes() throws Exception {
+        String source = "package p;\n" +
+            "import com.mclamee.tools.sanitizer.Sanitizer;\n" +
+            "public class Outer {\n" +
+            "    private static class Value {}\n" +
+            "    private static class Inner {\n" +
+            "        @Sanitizer private static Value value(Value v) { return v; }\n" +
+            "        @Sanitizer static Value[][] values(Value[][] v) { return v; }\n" +
+            "        @Sanitizer static int[] ints(int[] v) { return v; }\n" +
+            "    }\n" +
+            "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("p/Outer.java", source, diagnostics));
+        File index = new File(folder.getRoot(), "classes/" + SanitizerRegistry.INDEX_LOCATION);
+        Assert.assertEquals(Arrays.asList("p.Outer=", "p.Outer$Inner=p.Outer_Inner" + SanitizerRegistry.SUFFIX,
+            "p.Outer$Value="), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+
+        URL classes = new File(folder.getRoot(), "classes").toURI().toURL();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classes}, getClass().getClassLoader())) {
+            SanitizerRegistry registry = (SanitizerRegistry) classLoader.loadClass("p.Outer_Inner" + SanitizerRegistry.SUFFIX)
+                .newInstance();
+
+            Assert.assertEquals("p.Outer$Inner", registry.declaringClass().getName());
+            List<String> names = Arrays.stream(registry.sanitizers()).map(Method::getName).collect(Collectors.toList());
+            Assert.assertEquals(Arrays.asList("value", "values", "ints"), names);
+        }
+    }
+
+    @Test
+    public void testIncrementalIndex() throws Exception {
+        String first = "package p;\n" +
+            "import com.mclamee.tools.sanitizer.Sanitizer;\n" +
+            "public class First {\n" +
+            "    @Sanitizer public static String first(String s) { return s; }\n" +
+            "}\n";
+        String second = "package p;\n" +
+            "import com.mclamee.tools.sanitizer.Sanitizer;\n" +
+            "public class Second {\n" +
+            "    @Sanitizer public static String second(String s) { return s; }\n" +
+            "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        // two separate compilations into the same class output
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("p/First.java", first, diagnostics));
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("p/Second.java", second, diagnostics));
+        File index = new File(folder.getRoot(), "classes/" + SanitizerRegistry.INDEX_LOCATION);
+        Assert.assertEquals(Arrays.asList("p.First=p.First" + SanitizerRegistry.SUFFIX, "p.Second=p.Second" + SanitizerRegistry.SUFFIX),
+            Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+
+        URL classes = new File(folder.getRoot(), "classes").toURI().toURL();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classes}, getClass().getClassLoader())) {
+            for (String name : Arrays.asList("First", "Second")) {
+                SanitizerRegistry registry = (SanitizerRegistry) classLoader.loadClass("p." + name + SanitizerRegistry.SUFFIX)
+                    .newInstance();
+                Assert.assertEquals("p." + name, registry.declaringClass().getName());
+                Assert.assertEquals(1, registry.sanitizers().length);
+            }
+        }
+
+        // de-annotated then deleted, like by an incremental build
+        String plain = "package p;\npublic class Second {}\n";
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("p/Second.java", plain, diagnostics));
+        Assert.assertEquals(Arrays.asList("p.First=p.First" + SanitizerRegistry.SUFFIX, "p.Second="),
+            Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+        Files.delete(new File(folder.getRoot(), "classes/p/First.class").toPath());
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("p/Second.java", plain, diagnostics));
+        Assert.assertEquals(Collections.singletonList("p.Second="), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+    }
+
+    private boolean compile(String path, String source, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        // reused by the following compilations of the test
+        File sources = new File(folder.getRoot(), "sources");
+        File classes = new File(folder.getRoot(), "classes");
+        Assert.assertTrue(classes.isDirectory() || classes.mkdirs());
+        File file = new File(sources, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            // the class output is on the classpath, like in an incremental build
+            String classpath = new File(Sanitizer.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath() +
+                File.pathSeparator + classes.getPath();
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                Arrays.asList("-classpath", classpath, "-d", classes.getPath(), "-s", sources.getPath()), null,
+                fileManager.getJavaFileObjects(file));
+            task.setProcessors(Collections.singletonList(new SanitizerProcessor()));
+            return task.call();
+        }
+    }
+}
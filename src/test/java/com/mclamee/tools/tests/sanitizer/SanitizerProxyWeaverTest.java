@@ -0,0 +1,40 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import com.mclamee.tools.sanitizer.SanitizerAspect;
+import org.aspectj.lang.Aspects;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * The proxy mode under an AspectJ weaver run for other reasons, run by the aspectj profile
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SanitizerTestConfig.class)
+public class SanitizerProxyWeaverTest {
+    private static final String CONFIGURATION = "org.aspectj.weaver.loadtime.configuration";
+
+    @Autowired
+    private TestControllerBean controller;
+
+    @BeforeClass
+    public static void weaving() {
+        Assume.assumeTrue("No AspectJ weaver, run with -Paspectj", System.getProperty(CONFIGURATION) != null);
+    }
+
+    @Test
+    public void testNotWoven() {
+        // the module does not declare its aspect to the weaver, the beans are proxied
+        Assert.assertFalse(Aspects.hasAspect(SanitizerAspect.class));
+        Assert.assertTrue(AopUtils.isAopProxy(controller));
+
+        TestUserVo resultVo = controller.callReplacingSanitizer(new TestUserVo("wicky test test"));
+        Assert.assertEquals("replaced", resultVo.getUserName());
+    }
+}
@@ -0,0 +1,96 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerDefinition;
+import com.mclamee.tools.sanitizer.SanitizerResultCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SanitizerResultCacheTest {
+    private static final AtomicInteger calls = new AtomicInteger();
+
+    @Sanitizer(value = "countryCode", pure = true, cacheSize = 2)
+    public static String countryCode(String value) {
+        calls.incrementAndGet();
+        return value == null ? null : value.trim().toUpperCase();
+    }
+
+    @Sanitizer(value = "label", pure = true, cacheSize = 10, weighByLength = true)
+    public static String label(String value) {
+        calls.incrementAndGet();
+        return value.trim();
+    }
+
+    @Sanitizer("impure")
+    public static String impure(String value) {
+        calls.incrementAndGet();
+        return value.trim();
+    }
+
+    @Before
+    public void setup() {
+        calls.set(0);
+    }
+
+    @Test
+    public void testHitsSkipInvocation() throws Throwable {
+        SanitizerDefinition definition = SanitizerDefinition.of(getClass().getMethod("countryCode", String.class));
+        SanitizerResultCache resultCache = definition.getResultCache();
+        Assert.assertNotNull(resultCache);
+
+        Assert.assertEquals("CN", definition.invoke(" cn "));
+        Assert.assertEquals("CN", definition.invoke(" cn "));
+        Assert.assertEquals("CN", definition.invoke(" cn "));
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(2, resultCache.stats().getHitCount());
+        Assert.assertEquals(1, resultCache.stats().getMissCount());
+
+        // null parameters are never cached
+        Assert.assertNull(definition.invoke(null));
+        Assert.assertNull(definition.invoke(null));
+        Assert.assertEquals(3, calls.get());
+
+        resultCache.clear();
+        Assert.assertEquals("CN", definition.invoke(" cn "));
+        Assert.assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testBounded() throws Throwable {
+        SanitizerDefinition definition = SanitizerDefinition.of(getClass().getMethod("countryCode", String.class));
+        for (int i = 0; i < 100; i++) {
+            definition.invoke("c" + i);
+        }
+        Assert.assertTrue(definition.getResultCache().stats().getSize() <= 2);
+        Assert.assertTrue(definition.getResultCache().stats().getEvictionCount() >= 98);
+    }
+
+    @Test
+    public void testWeighByLength() throws Throwable {
+        SanitizerDefinition definition = SanitizerDefinition.of(getClass().getMethod("label", String.class));
+        // heavier than the whole cache
+        Assert.assertEquals("a long label", definition.invoke("a long label"));
+        Assert.assertEquals(0, definition.getResultCache().stats().getSize());
+
+        Assert.assertEquals("ok", definition.invoke(" ok "));
+        Assert.assertEquals("ok", definition.invoke(" ok "));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testImpureNeverCached() throws Throwable {
+        SanitizerDefinition definition = SanitizerDefinition.of(getClass().getMethod("impure", String.class));
+        Assert.assertNull(definition.getResultCache());
+
+        definition.invoke(" a ");
+        definition.invoke(" a ");
+        Assert.assertEquals(2, calls.get());
+
+        // the mutating list Sanitizers of the tests
+        Assert.assertNull(SanitizerDefinition.of(TestControllerBean.class.getMethod("sanitizeUserListDefault",
+            java.util.List.class)).getResultCache());
+    }
+}
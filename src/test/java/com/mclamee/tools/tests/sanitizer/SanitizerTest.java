@@ -1,17 +1,37 @@
 package com.mclamee.tools.tests.sanitizer;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
 
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerAspect;
+import com.mclamee.tools.sanitizer.SanitizerEngine;
+import com.mclamee.tools.sanitizer.SanitizerPostProcessor;
 import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -23,6 +43,21 @@ public class SanitizerTest {
     @Autowired
     private TestControllerBean controller;
 
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private SanitizerPostProcessor postProcessor;
+
+    @Autowired
+    private SanitizerAspect aspect;
+
+    @Autowired
+    private SanitizerEngine engine;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private List<TestUserVo> userVos;
     private TestUserVo userVo;
 
@@ -100,6 +135,232 @@ public class SanitizerTest {
         }
     }
 
+    @Test
+    public void testReplacedArgs() {
+        // trigger aspect twice, the second call runs on the cached plan
+        for (int i = 0; i < 2; i++) {
+            TestUserVo resultVo = controller.callReplacingSanitizer(this.userVo);
+
+            // asserts, the sanitized instance is passed to the target
+            Assert.assertTrue(resultVo != null);
+            Assert.assertTrue(resultVo != this.userVo);
+            Assert.assertTrue(resultVo.getUserName().equals("replaced"));
+        }
+    }
+
+    @Test
+    public void testLiftedContainers() {
+        // no Sanitizer of the containers, the element Sanitizers are lifted
+        Set<TestUserVo> set = controller.callLiftedSetSanitizer(new HashSet<>(userVos));
+        Assert.assertEquals(1, set.size());
+        Assert.assertTrue(set.stream().allMatch(r -> r.getUserName().equals("replaced")));
+
+        TestUserVo[] array = controller.callLiftedArraySanitizer(new TestUserVo[] {userVo, null});
+        Assert.assertTrue(array[0].getUserName().equals("changed"));
+        Assert.assertTrue(array[1] == null);
+
+        Map<String, TestUserVo> map = new LinkedHashMap<>();
+        map.put("wicky", userVo);
+        map = controller.callLiftedMapSanitizer(map);
+        Assert.assertTrue(map.get("wicky").getUserName().equals("replaced"));
+    }
+
+    @Test
+    public void testLiftedParallel() {
+        // above the parallel threshold, the elements are sanitized on the fork join pool
+        TestUserVo[] userVos = new TestUserVo[50_000];
+        for (int i = 0; i < userVos.length; i++) {
+            userVos[i] = new TestUserVo("user " + i);
+        }
+
+        TestUserVo[] result = controller.callLiftedReplacingArraySanitizer(userVos);
+        Assert.assertTrue(Arrays.stream(result).allMatch(r -> r.getUserName().equals("replaced")));
+    }
+
+    @Test
+    public void testFieldSanitizer() {
+        TestOrderVo order = new TestOrderVo();
+        order.setTitle(" Order\u3000 1 ");
+        order.setTags(new ArrayList<>(Arrays.asList(" new ", "paid")));
+        order.setOwner(userVo);
+        order.setItems(Arrays.asList(new TestOrderVo.TestItemVo(" pen\u00A0", " P-1 "), null));
+        // a cycle
+        order.setParent(order);
+
+        TestOrderVo result = controller.callFieldSanitizer(order);
+        Assert.assertEquals("Order 1", result.getTitle());
+        Assert.assertEquals(Arrays.asList("new", "paid"), result.getTags());
+        Assert.assertEquals("pen", result.getItems().get(0).getName());
+        Assert.assertEquals(" P-1 ", result.getItems().get(0).getSku());
+        // the owner holds no @Sanitized field, its default Sanitizer is not applied
+        Assert.assertEquals("wicky test test", result.getOwner().getUserName());
+
+        TestOrderVo lifted = new TestOrderVo();
+        lifted.setTitle(" lifted ");
+        Assert.assertEquals("lifted", controller.callLiftedFieldSanitizer(Arrays.asList(lifted, null)).get(0).getTitle());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testFieldSanitizerCyclicContainers() {
+        TestOrderVo order = new TestOrderVo();
+        order.setTitle(" cyclic ");
+        // a list holding itself, reached through a VO
+        List children = new ArrayList<>();
+        children.add(children);
+        children.add(order);
+        order.setChildren(children);
+        Assert.assertEquals("cyclic", controller.callFieldSanitizer(order).getTitle());
+
+        // an array holding itself, within a lifted list
+        Object[] array = new Object[2];
+        array[0] = array;
+        TestOrderVo element = new TestOrderVo();
+        element.setTitle(" element ");
+        array[1] = element;
+        List lifted = new ArrayList<>(Arrays.asList(array, order));
+        controller.callLiftedFieldSanitizer(lifted);
+        Assert.assertEquals("element", element.getTitle());
+    }
+
+    @Test
+    public void testChains() {
+        // fused into a single pass, the Sanitizer methods are not called
+        int calls = TestControllerBean.LOWERCASE_CALLS.get();
+        Assert.assertEquals("hello world", controller.callChainSanitizer("\u00A0Hello\u200B  WORLD "));
+        String clean = "already clean";
+        Assert.assertSame(clean, controller.callChainSanitizer(clean));
+        Assert.assertNull(controller.callChainSanitizer(null));
+        Assert.assertEquals(calls, TestControllerBean.LOWERCASE_CALLS.get());
+
+        // composed in order
+        TestUserVo resultVo = controller.callComposedChainSanitizer(userVo);
+        Assert.assertEquals("changed", userVo.getUserName());
+        Assert.assertEquals("replaced", resultVo.getUserName());
+
+        // no names at all, the default Sanitizer
+        Assert.assertEquals("changed", controller.callEmptyChainSanitizer(new TestUserVo("wicky")).getUserName());
+    }
+
+    @Test
+    public void testIdempotentSanitizer() {
+        int calls = TestServiceBean.NORMALIZED_CALLS.get();
+        SanitizerAspect.IdempotenceStats before = aspect.getIdempotenceStats();
+
+        // sanitized by the controller, skipped by the service
+        Assert.assertEquals("wicky test test", controller.callIdempotentSanitizer(new TestUserVo(" wicky test test ")).getUserName());
+        Assert.assertEquals(calls + 1, TestServiceBean.NORMALIZED_CALLS.get());
+        // another instance is sanitized again
+        Assert.assertEquals("wicky", controller.callIdempotentCopySanitizer(new TestUserVo(" wicky ")).getUserName());
+        Assert.assertEquals(calls + 3, TestServiceBean.NORMALIZED_CALLS.get());
+        // the scope ends with the outermost call
+        controller.callIdempotentSanitizer(userVo);
+        controller.callIdempotentSanitizer(userVo);
+        Assert.assertEquals(calls + 5, TestServiceBean.NORMALIZED_CALLS.get());
+
+        SanitizerAspect.IdempotenceStats after = aspect.getIdempotenceStats();
+        Assert.assertEquals(8, after.getChecked() - before.getChecked());
+        Assert.assertEquals(3, after.getSkipped() - before.getSkipped());
+    }
+
+    @Test
+    public void testRuntimeRegistration() throws Exception {
+        try {
+            controller.callPluginSanitizer("acme");
+            Assert.fail("Not registered yet");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().startsWith("No default Sanitizer found"));
+        }
+
+        long version = postProcessor.register(TestPluginSanitizers.class);
+        try {
+            // the plan which failed to resolve is resolved again
+            Assert.assertEquals("ACME", controller.callPluginSanitizer("acme"));
+        } finally {
+            Assert.assertTrue(postProcessor.unregister(TestPluginSanitizers.class) > version);
+        }
+
+        try {
+            controller.callPluginSanitizer("acme");
+            Assert.fail("Unregistered");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().startsWith("No default Sanitizer found"));
+        }
+
+        // a reloaded plugin no longer declaring a Sanitizer, nor a default one
+        Class<?> plugin = compilePlugin("v1",
+            "@Sanitizer public static String country(String s) { return s.toUpperCase(); }\n" +
+            "@Sanitizer(\"region\") public static String region(String s) { return s.toUpperCase(); }\n");
+        Class<?> reloaded = compilePlugin("v2",
+            "@Sanitizer(\"region\") public static String region(String s) { return s.toLowerCase(); }\n");
+        postProcessor.register(plugin);
+        Assert.assertEquals("EU", engine.sanitize("eu", String.class, "country"));
+        postProcessor.register(reloaded);
+        try {
+            Assert.assertEquals("eu", engine.sanitize("EU", String.class, "region"));
+            try {
+                engine.sanitize("eu", String.class, "country");
+                Assert.fail("Dropped by the reloaded plugin");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().startsWith("No default Sanitizer found"));
+            }
+        } finally {
+            postProcessor.unregister(reloaded);
+        }
+        try {
+            postProcessor.unregister(plugin);
+            Assert.fail("Replaced by the reloaded plugin");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().endsWith("are not registered"));
+        }
+    }
+
+    /**
+     * Compile a version of the plugin class into its own ClassLoader
+     */
+    private Class<?> compilePlugin(String version, String methods) throws IOException, ClassNotFoundException {
+        File root = folder.newFolder(version);
+        File source = new File(root, "plugin/Plugin.java");
+        Files.createDirectories(source.getParentFile().toPath());
+        String code = "package plugin;\nimport com.mclamee.tools.sanitizer.Sanitizer;\npublic class Plugin {\n" + methods + "}\n";
+        Files.write(source.toPath(), code.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = new File(Sanitizer.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+        Assert.assertEquals(0, compiler.run(null, null, null, "-proc:none", "-classpath", classpath, "-d",
+            root.getPath(), source.getPath()));
+        // not closed, the Sanitizers of the plugin are held until unregistered
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {root.toURI().toURL()}, getClass().getClassLoader());
+        return classLoader.loadClass("plugin.Plugin");
+    }
+
+    @Test
+    public void testRepeatedBeans() {
+        SanitizerPostProcessor.ScanStats before = postProcessor.getScanStats();
+
+        // like prototype beans, the Sanitizers of a known class are not registered twice
+        TestControllerBean another = context.getAutowireCapableBeanFactory().createBean(TestControllerBean.class);
+        Assert.assertTrue(another.callReplacingSanitizer(this.userVo).getUserName().equals("replaced"));
+
+        SanitizerPostProcessor.ScanStats after = postProcessor.getScanStats();
+        Assert.assertEquals(before.getBeanClasses(), after.getBeanClasses());
+        Assert.assertEquals(before.getScanned() + before.getIndexed(), after.getScanned() + after.getIndexed());
+        Assert.assertTrue(after.getIndexed() >= 2);
+    }
+
+    @Test
+    public void testIndexedWithoutSanitizers() {
+        SanitizerPostProcessor.ScanStats before = postProcessor.getScanStats();
+
+        // listed in the index of the test classes without Sanitizers, not scanned
+        long version = postProcessor.register(TestOrderVo.class);
+        postProcessor.unregister(TestOrderVo.class);
+
+        SanitizerPostProcessor.ScanStats after = postProcessor.getScanStats();
+        Assert.assertTrue(version > 0);
+        Assert.assertEquals(before.getScanned(), after.getScanned());
+        Assert.assertEquals(before.getIndexed() + 1, after.getIndexed());
+    }
+
     @Test
     public void testLoopCall() {
         // trigger aspect
@@ -14,6 +14,11 @@ public class SanitizerTestConfig {
         return new TestControllerBean();
     }
 
+    @Bean
+    public TestServiceBean getService() {
+        return new TestServiceBean();
+    }
+
     // cross class test: package accessibility
     @Sanitizer("anyName")
     private static List<TestUserVo> sanitizeUserListMethodName(List<TestUserVo> userVos) {
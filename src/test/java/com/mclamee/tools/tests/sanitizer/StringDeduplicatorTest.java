@@ -0,0 +1,58 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerDefinition;
+import com.mclamee.tools.sanitizer.util.StringDeduplicator;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringDeduplicatorTest {
+
+    @Sanitizer(value = "city", dedup = true)
+    public static String city(String value) {
+        return WhiteSpaceUtil.sanitizeLine(value);
+    }
+
+    @Test
+    public void testDedup() {
+        StringDeduplicator deduplicator = new StringDeduplicator(100, 8);
+        String first = new String("Shanghai");
+        String second = new String("Shanghai");
+
+        Assert.assertSame(first, deduplicator.dedup(first));
+        Assert.assertSame(first, deduplicator.dedup(second));
+        Assert.assertNull(deduplicator.dedup(null));
+
+        // too long to be deduplicated
+        String longer = new String("Shanghai City");
+        Assert.assertSame(longer, deduplicator.dedup(longer));
+        Assert.assertNotSame(longer, deduplicator.dedup(new String("Shanghai City")));
+    }
+
+    @Test
+    public void testLossy() {
+        // a single slot keeps the last String only
+        StringDeduplicator deduplicator = new StringDeduplicator(1, 64);
+        String a = new String("a");
+        deduplicator.dedup(a);
+        deduplicator.dedup("b");
+
+        Assert.assertNotSame(a, deduplicator.dedup(new String("a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new StringDeduplicator(0, 64);
+    }
+
+    @Test
+    public void testDedupSanitizer() throws Throwable {
+        SanitizerDefinition definition = SanitizerDefinition.of(getClass().getMethod("city", String.class));
+        Object first = definition.invoke(" Hangzhou\u00A0");
+        Object second = definition.invoke("\u3000Hangzhou ");
+
+        Assert.assertEquals("Hangzhou", first);
+        Assert.assertSame(first, second);
+    }
+}
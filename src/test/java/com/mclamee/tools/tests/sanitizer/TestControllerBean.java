@@ -1,15 +1,28 @@
 package com.mclamee.tools.tests.sanitizer;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.mclamee.tools.sanitizer.Sanitized;
 import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceLineSanitizer;
 import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import lombok.Data;
+import org.reactivestreams.Publisher;
 
 public class TestControllerBean {
 
+    @Autowired
+    private TestServiceBean service;
+
     public List<TestUserVo> callDefaultSanitizer(@Sanitized List<TestUserVo> userVos) {
         return userVos;
     }
@@ -37,6 +50,83 @@ public class TestControllerBean {
     public void callNonExistsSanitizer(@Sanitized("specialName") TestControllerBean bean) {
     }
 
+    public TestUserVo callReplacingSanitizer(@Sanitized("replacing") TestUserVo userVo) {
+        return userVo;
+    }
+
+    public TestUserVo callFailingSanitizer(@Sanitized("failing") TestUserVo userVo) {
+        return userVo;
+    }
+
+    public TestUserVo callSelfInvokedSanitizer(TestUserVo userVo) {
+        // not sanitized through a proxy
+        return callReplacingSanitizer(userVo);
+    }
+
+    public Set<TestUserVo> callLiftedSetSanitizer(@Sanitized("replacing") Set<TestUserVo> userVos) {
+        return userVos;
+    }
+
+    public TestUserVo[] callLiftedArraySanitizer(@Sanitized TestUserVo[] userVos) {
+        return userVos;
+    }
+
+    public Map<String, TestUserVo> callLiftedMapSanitizer(@Sanitized("replacing") Map<String, TestUserVo> userVos) {
+        return userVos;
+    }
+
+    public TestUserVo[] callLiftedReplacingArraySanitizer(@Sanitized("replacing") TestUserVo[] userVos) {
+        return userVos;
+    }
+
+    public TestOrderVo callFieldSanitizer(@Sanitized TestOrderVo order) {
+        return order;
+    }
+
+    public List<TestOrderVo> callLiftedFieldSanitizer(@Sanitized List<TestOrderVo> orders) {
+        return orders;
+    }
+
+    public CompletableFuture<TestUserVo> callFutureSanitizer(@Sanitized("replacing") CompletableFuture<TestUserVo> userVo) {
+        return userVo;
+    }
+
+    public CompletionStage<TestOrderVo> callStageFieldSanitizer(@Sanitized CompletionStage<TestOrderVo> order) {
+        return order;
+    }
+
+    public Publisher<String> callPublisherSanitizer(@Sanitized("trimmed") Publisher<String> lines) {
+        return lines;
+    }
+
+    public Publisher<String> callNullingPublisherSanitizer(@Sanitized("blankToNull") Publisher<String> lines) {
+        return lines;
+    }
+
+    public String callChainSanitizer(@Sanitized({"trimmed", "lowercase"}) String value) {
+        return value;
+    }
+
+    public TestUserVo callIdempotentSanitizer(@Sanitized("normalized") TestUserVo userVo) {
+        return service.save(userVo);
+    }
+
+    public TestUserVo callIdempotentCopySanitizer(@Sanitized("normalized") TestUserVo userVo) {
+        return service.save(new TestUserVo(userVo.getUserName()));
+    }
+
+    public String callPluginSanitizer(@Sanitized("tenant") String value) {
+        return value;
+    }
+
+    public TestUserVo callEmptyChainSanitizer(@Sanitized({}) TestUserVo userVo) {
+        return userVo;
+    }
+
+    public TestUserVo callComposedChainSanitizer(@Sanitized({"default", "replacing"}) TestUserVo userVo) {
+        return userVo;
+    }
+
     @Sanitizer
     public static List<TestUserVo> sanitizeUserListDefault(List<TestUserVo> userVos) {
         if (userVos != null) {
@@ -68,6 +158,51 @@ public class TestControllerBean {
         return userVo;
     }
 
+    @Sanitizer("replacing")
+    public static TestUserVo replaceVo(TestUserVo userVo) {
+        return new TestUserVo("replaced");
+    }
+
+    @Sanitizer("failing")
+    public static TestUserVo failVo(TestUserVo userVo) {
+        throw new IllegalStateException("Cannot sanitize " + userVo);
+    }
+
+    @Sanitizer(value = "trimmed", fused = WhiteSpaceLineSanitizer.class)
+    public static String trimmed(String value) {
+        return WhiteSpaceUtil.sanitizeLine(value);
+    }
+
+    public static final AtomicInteger LOWERCASE_CALLS = new AtomicInteger();
+
+    public static class LowerCase implements CharSanitizer {
+        @Override
+        public Sink open(Sink downstream) {
+            return new Sink() {
+                @Override
+                public void append(char c) {
+                    downstream.append(Character.toLowerCase(c));
+                }
+
+                @Override
+                public void end() {
+                    downstream.end();
+                }
+            };
+        }
+    }
+
+    @Sanitizer(value = "lowercase", fused = LowerCase.class)
+    public static String lowercase(String value) {
+        LOWERCASE_CALLS.incrementAndGet();
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    @Sanitizer("blankToNull")
+    public static String blankToNull(String value) {
+        return value.trim().isEmpty() ? null : value;
+    }
+
     @Sanitizer("loopCall")
     public static TestUserVo loopCall(@Sanitized("specialName") TestUserVo userVo) {
         // no change and return directly
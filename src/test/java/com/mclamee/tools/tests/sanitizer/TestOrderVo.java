@@ -0,0 +1,28 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.List;
+
+import com.mclamee.tools.sanitizer.Sanitized;
+import lombok.Data;
+import lombok.ToString;
+
+@Data
+@ToString(exclude = {"parent", "children"})
+public class TestOrderVo {
+    @Sanitized("trimmed")
+    private String title;
+    @Sanitized("trimmed")
+    private List<String> tags;
+    // no @Sanitized field, never walked
+    private TestUserVo owner;
+    private List<TestItemVo> items;
+    private TestOrderVo parent;
+    private List<TestOrderVo> children;
+
+    @Data
+    public static class TestItemVo {
+        @Sanitized("trimmed")
+        private final String name;
+        private final String sku;
+    }
+}
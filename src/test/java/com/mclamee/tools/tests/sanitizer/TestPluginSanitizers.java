@@ -0,0 +1,16 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.Locale;
+
+import com.mclamee.tools.sanitizer.Sanitizer;
+
+/**
+ * Sanitizers registered at runtime, not by a bean
+ */
+public class TestPluginSanitizers {
+
+    @Sanitizer("tenant")
+    public static String tenant(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+}
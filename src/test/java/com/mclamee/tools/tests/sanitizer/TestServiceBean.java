@@ -0,0 +1,24 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mclamee.tools.sanitizer.Sanitized;
+import com.mclamee.tools.sanitizer.Sanitizer;
+
+/**
+ * A layer below the {@link TestControllerBean}, sanitizing the same values again
+ */
+public class TestServiceBean {
+    public static final AtomicInteger NORMALIZED_CALLS = new AtomicInteger();
+
+    public TestUserVo save(@Sanitized("normalized") TestUserVo userVo) {
+        return userVo;
+    }
+
+    @Sanitizer(value = "normalized", idempotent = true)
+    public static TestUserVo normalized(TestUserVo userVo) {
+        NORMALIZED_CALLS.incrementAndGet();
+        userVo.setUserName(userVo.getUserName().trim());
+        return userVo;
+    }
+}
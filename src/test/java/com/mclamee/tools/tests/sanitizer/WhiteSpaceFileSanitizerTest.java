@@ -0,0 +1,58 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.mclamee.tools.sanitizer.util.WhiteSpaceFileSanitizer;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WhiteSpaceFileSanitizerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSanitizeLines() throws IOException {
+        Random random = new Random(20190605L);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int n = 0; n < 2000; n++) {
+            // random lines without line feed, decoded back to skip the lone surrogates
+            String line = new String(WhiteSpaceUtilTest.randomString(random, 30).replace('\n', 'x')
+                .getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            input.append(line).append(random.nextBoolean() ? "\r\n" : "\n");
+            // a \r before the line feed is deleted as an empty char
+            expected.append(WhiteSpaceUtil.sanitizeLine(line)).append('\n');
+        }
+        input.append("  last line\u3000");
+        expected.append("last line");
+
+        Path in = folder.newFile("in.csv").toPath();
+        Path out = folder.newFile("out.csv").toPath();
+        Files.write(in, input.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (int chunkSize : new int[] {1, 100, 1 << 20}) {
+            WhiteSpaceFileSanitizer.Report report = WhiteSpaceFileSanitizer.sanitizeLines(in, out, 3, chunkSize);
+
+            Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(out), StandardCharsets.UTF_8));
+            Assert.assertEquals(2001, report.getLines());
+            Assert.assertEquals(Files.size(out), report.getBytesWritten());
+            Assert.assertEquals(6, report.getWindow());
+        }
+
+        // bounded by the memory budget rather than the cores
+        WhiteSpaceFileSanitizer.Report report = WhiteSpaceFileSanitizer.sanitizeLines(in, out, 64, 100, 1000);
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(out), StandardCharsets.UTF_8));
+        Assert.assertEquals(10, report.getWindow());
+        report = WhiteSpaceFileSanitizer.sanitizeLines(in, out, 64, 100, 1);
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(out), StandardCharsets.UTF_8));
+        Assert.assertEquals(2, report.getWindow());
+    }
+}
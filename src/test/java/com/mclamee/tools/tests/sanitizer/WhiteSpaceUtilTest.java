@@ -0,0 +1,340 @@
+package com.mclamee.tools.tests.sanitizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.mclamee.tools.sanitizer.util.CharSanitizer;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceLineSanitizer;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceReader;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtf8;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil.SpecHtmlCharacterEnum;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WhiteSpaceUtilTest {
+    // the regex implementation WhiteSpaceUtil used to have, as the reference
+    private static final Pattern LINE_BREAKS = Pattern.compile("[\\n\\r\\v]+");
+    private static final Pattern EMPTIES = Pattern.compile("[" + SpecHtmlCharacterEnum.emptyAppearanceRegexStr() + "]+");
+    private static final Pattern SPACES = Pattern.compile("[\\f\\t" + SpecHtmlCharacterEnum.spaceAppearanceRegexStr() + "]+");
+
+    private static final char[] ALPHABET;
+
+    static {
+        StringBuilder alphabet = new StringBuilder("ab \u0001\u001f\u00E9\u4E2D\uD83D\uDE00&;");
+        for (SpecHtmlCharacterEnum i : SpecHtmlCharacterEnum.values()) {
+            alphabet.append((char) Integer.parseInt(i.getUnicodeRegex().substring(2), 16));
+        }
+        alphabet.append("\u2028\u2029");
+        ALPHABET = alphabet.toString().toCharArray();
+    }
+
+    static String referenceSanitize(String str, boolean mergeLinesBySpace) {
+        if (StringUtils.isEmpty(str)) {
+            return str;
+        }
+        StringBuilder sb = new StringBuilder();
+        String[] splitList = LINE_BREAKS.split(str);
+        for (int i = 0; i < splitList.length; i++) {
+            if (i > 0) {
+                sb.append(mergeLinesBySpace ? " " : System.lineSeparator());
+            }
+            sb.append(referenceSanitizeLine(splitList[i]));
+        }
+        return sb.toString();
+    }
+
+    static String referenceSanitizeLine(String str) {
+        if (StringUtils.isEmpty(str)) {
+            return str;
+        }
+        String spaced = SPACES.matcher(str).replaceAll(" ");
+        return StringUtils.trim(EMPTIES.matcher(spaced).replaceAll(""));
+    }
+
+    static String randomString(Random random, int maxLength) {
+        return randomString(random, maxLength, ALPHABET);
+    }
+
+    static String randomString(Random random, int maxLength, char[] alphabet) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void testSameAsRegex() {
+        Random random = new Random(20190601L);
+        for (int n = 0; n < 50000; n++) {
+            String str = randomString(random, 24);
+            Assert.assertEquals(str, referenceSanitize(str, true), WhiteSpaceUtil.sanitize(str, true));
+            Assert.assertEquals(str, referenceSanitize(str, false), WhiteSpaceUtil.sanitize(str, false));
+            Assert.assertEquals(str, referenceSanitizeLine(str), WhiteSpaceUtil.sanitizeLine(str));
+        }
+    }
+
+    @Test
+    public void testUnchangedIsSameInstance() {
+        Random random = new Random(20190602L);
+        for (int n = 0; n < 50000; n++) {
+            String str = randomString(random, 24);
+            Assert.assertEquals(str, str.equals(referenceSanitize(str, true)), WhiteSpaceUtil.sanitize(str, true) == str);
+            Assert.assertEquals(str, str.equals(referenceSanitizeLine(str)), WhiteSpaceUtil.isSanitizedLine(str));
+            for (boolean merge : new boolean[] {true, false}) {
+                Assert.assertEquals(str, WhiteSpaceUtil.sanitize(str, merge) == str, WhiteSpaceUtil.isSanitized(str, merge));
+            }
+        }
+        // mostly printable ASCII, checked word at a time
+        char[] ascii = "abcdefgh      ~\u007f\u0001\t".toCharArray();
+        for (int n = 0; n < 50000; n++) {
+            String str = randomString(random, 24, ascii);
+            Assert.assertEquals(str, str.equals(referenceSanitize(str, true)), WhiteSpaceUtil.sanitize(str, true) == str);
+            Assert.assertEquals(str, referenceSanitize(str, true), WhiteSpaceUtil.sanitize(str, true));
+        }
+
+        String clean = "Hello World, a clean ASCII sentence; nothing to do!";
+        Assert.assertSame(clean, WhiteSpaceUtil.sanitize(clean));
+        Assert.assertTrue(WhiteSpaceUtil.isSanitized(clean, true));
+        Assert.assertFalse(WhiteSpaceUtil.isSanitized("Hello  World, a clean ASCII sentence", true));
+        Assert.assertFalse(WhiteSpaceUtil.isSanitized("Hello World,\u00A0nbsp", true));
+        Assert.assertFalse(WhiteSpaceUtil.isSanitized("abc ", true));
+        // split lines are kept by the line separator only
+        String lines = "a" + System.lineSeparator() + "b";
+        Assert.assertTrue(WhiteSpaceUtil.isSanitized(lines, false));
+        Assert.assertFalse(WhiteSpaceUtil.isSanitized(lines, true));
+        Assert.assertFalse(WhiteSpaceUtil.isSanitizedLine(lines));
+        Assert.assertTrue(WhiteSpaceUtil.isSanitized(null, true));
+        Assert.assertTrue(WhiteSpaceUtil.isSanitizedLine(""));
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        Random random = new Random(20190603L);
+        for (int n = 0; n < 20000; n++) {
+            String str = randomString(random, 40);
+            int bufferSize = 1 + random.nextInt(8);
+            for (boolean merge : new boolean[] {true, false}) {
+                StringWriter writer = new StringWriter();
+                Reader reader = new WhiteSpaceReader(new TrickleReader(str, random), merge, bufferSize);
+                char[] chars = new char[1 + random.nextInt(5)];
+                int read;
+                while ((read = reader.read(chars)) != -1) {
+                    writer.write(chars, 0, read);
+                }
+                Assert.assertEquals(str, WhiteSpaceUtil.sanitize(str, merge), writer.toString());
+            }
+        }
+
+        StringWriter writer = new StringWriter();
+        long count = WhiteSpaceUtil.sanitize(new StringReader("  \ta  a\ta   \r\n \u0020\u0020bb\u00a0b\t\u00a0"), writer, true);
+        Assert.assertEquals("a a a bb b", writer.toString());
+        Assert.assertEquals(10, count);
+    }
+
+    @Test
+    public void testStreamingControlCharRun() throws IOException {
+        // held back whole until its line ends, then trimmed or kept
+        char[] padding = new char[1 << 20];
+        String nul = new String(padding);
+        String str = "a" + nul + "\nb" + nul + "c " + nul;
+        StringWriter writer = new StringWriter();
+        WhiteSpaceUtil.sanitize(new StringReader(str), writer, true);
+        Assert.assertEquals("a b" + nul + "c", writer.toString());
+        Assert.assertEquals(WhiteSpaceUtil.sanitize(str, true), writer.toString());
+    }
+
+    /**
+     * Reader returning a few chars at a time
+     */
+    private static class TrickleReader extends StringReader {
+        private final Random random;
+
+        TrickleReader(String str, Random random) {
+            super(str);
+            this.random = random;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 1 + random.nextInt(3)));
+        }
+    }
+
+    @Test
+    public void testUtf8() {
+        Random random = new Random(20190604L);
+        for (int n = 0; n < 20000; n++) {
+            String str = randomString(random, 24);
+            byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+            // lone surrogates are not encodable, compare with the decoded text
+            String decoded = new String(utf8, StandardCharsets.UTF_8);
+
+            for (boolean merge : new boolean[] {true, false}) {
+                byte[] expected = WhiteSpaceUtil.sanitize(decoded, merge).getBytes(StandardCharsets.UTF_8);
+                Assert.assertArrayEquals(str, expected, WhiteSpaceUtf8.sanitize(utf8, merge));
+
+                ByteBuffer in = ByteBuffer.allocateDirect(utf8.length);
+                in.put(utf8).flip();
+                ByteBuffer out = ByteBuffer.allocateDirect(WhiteSpaceUtf8.maxLength(utf8.length, merge));
+                WhiteSpaceUtf8.sanitize(in, out, merge);
+                out.flip();
+                Assert.assertEquals(str, ByteBuffer.wrap(expected), out);
+            }
+
+            ByteBuffer line = ByteBuffer.allocate(utf8.length);
+            WhiteSpaceUtf8.sanitizeLine(ByteBuffer.wrap(utf8), line);
+            Assert.assertEquals(str, WhiteSpaceUtil.sanitizeLine(decoded), new String(line.array(), 0, line.position(), StandardCharsets.UTF_8));
+
+            byte[] inPlace = ("#" + decoded).getBytes(StandardCharsets.UTF_8);
+            int length = WhiteSpaceUtf8.sanitizeInPlace(inPlace, 1, inPlace.length - 1, true);
+            Assert.assertEquals(str, WhiteSpaceUtil.sanitize(decoded, true), new String(inPlace, 1, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    // the extra unescape pass the HTML mode replaces, as the reference
+    static String referenceUnescape(String str) {
+        Map<String, String> entities = new HashMap<>();
+        for (SpecHtmlCharacterEnum i : SpecHtmlCharacterEnum.values()) {
+            String c = String.valueOf((char) Integer.parseInt(i.getUnicodeRegex().substring(2), 16));
+            if (i.getEntity() != null) {
+                entities.put(i.getEntity(), c);
+            }
+            entities.put(i.getEntityCode(), c);
+        }
+        Pattern pattern = Pattern.compile(entities.keySet().stream().map(Pattern::quote).collect(Collectors.joining("|")));
+        Matcher matcher = pattern.matcher(str);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(entities.get(matcher.group())));
+        }
+        return matcher.appendTail(sb).toString();
+    }
+
+    @Test
+    public void testHtmlEntities() {
+        List<String> tokens = new ArrayList<>();
+        for (char c : ALPHABET) {
+            tokens.add(String.valueOf(c));
+        }
+        for (SpecHtmlCharacterEnum i : SpecHtmlCharacterEnum.values()) {
+            if (i.getEntity() != null) {
+                tokens.add(i.getEntity());
+            }
+            tokens.add(i.getEntityCode());
+        }
+        // not decoded
+        tokens.add("&amp;");
+        tokens.add("&nbsp");
+        tokens.add("&#82");
+        tokens.add("&#;");
+
+        Random random = new Random(20190605L);
+        for (int n = 0; n < 50000; n++) {
+            StringBuilder sb = new StringBuilder();
+            for (int length = random.nextInt(12); length > 0; length--) {
+                sb.append(tokens.get(random.nextInt(tokens.size())));
+            }
+            String str = sb.toString();
+            String unescaped = referenceUnescape(str);
+            Assert.assertEquals(str, WhiteSpaceUtil.sanitize(unescaped, true), WhiteSpaceUtil.sanitizeHtml(str, true));
+            Assert.assertEquals(str, WhiteSpaceUtil.sanitize(unescaped, false), WhiteSpaceUtil.sanitizeHtml(str, false));
+            Assert.assertEquals(str, WhiteSpaceUtil.sanitizeLine(unescaped), WhiteSpaceUtil.sanitizeHtmlLine(str));
+        }
+
+        Assert.assertEquals("a b", WhiteSpaceUtil.sanitizeHtmlLine("a&nbsp;&nbsp;b"));
+        Assert.assertEquals("xy", WhiteSpaceUtil.sanitizeHtmlLine("x&#8203;y"));
+        Assert.assertEquals("a b", WhiteSpaceUtil.sanitizeHtml("a&NewLine;&Tab;b", true));
+        Assert.assertEquals("&amp; &nbsp", WhiteSpaceUtil.sanitizeHtmlLine("&amp;&ensp;&nbsp"));
+        String clean = "a &amp; b";
+        Assert.assertSame(clean, WhiteSpaceUtil.sanitizeHtmlLine(clean));
+    }
+
+    @Test
+    public void testSanitizeTo() {
+        Random random = new Random(20190607L);
+        StringBuilder out = new StringBuilder();
+        for (int n = 0; n < 50000; n++) {
+            String str = randomString(random, 24);
+            String padded = "<" + str + ">";
+            boolean merge = random.nextBoolean();
+            String expected = StringUtils.defaultString(WhiteSpaceUtil.sanitize(str, merge));
+
+            // reused, appended after its content
+            out.setLength(0);
+            out.append("prefix ");
+            Assert.assertEquals(str, expected.length(), WhiteSpaceUtil.sanitizeTo(str, out, merge));
+            Assert.assertEquals(str, "prefix " + expected, out.toString());
+
+            // a slice of a CharBuffer, a range of a char array
+            out.setLength(0);
+            WhiteSpaceUtil.sanitizeTo(CharBuffer.wrap(padded, 1, padded.length() - 1), out, merge);
+            Assert.assertEquals(str, expected, out.toString());
+            out.setLength(0);
+            WhiteSpaceUtil.sanitizeTo(padded.toCharArray(), 1, str.length(), out, merge);
+            Assert.assertEquals(str, expected, out.toString());
+
+            out.setLength(0);
+            WhiteSpaceUtil.sanitizeLineTo(new StringBuilder(str), out);
+            Assert.assertEquals(str, StringUtils.defaultString(WhiteSpaceUtil.sanitizeLine(str)), out.toString());
+        }
+        Assert.assertEquals(0, WhiteSpaceUtil.sanitizeTo(null, out, true));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSanitizeToOutOfBounds() {
+        WhiteSpaceUtil.sanitizeTo(new char[4], 2, 3, new StringBuilder(), true);
+    }
+
+    @Test
+    public void testCharSanitizer() {
+        Random random = new Random(20190606L);
+        CharSanitizer sanitizer = new WhiteSpaceLineSanitizer();
+        for (int n = 0; n < 50000; n++) {
+            String str = randomString(random, 24);
+            StringBuilder out = new StringBuilder();
+            CharSanitizer.Sink sink = sanitizer.open(new CharSanitizer.Sink() {
+                @Override
+                public void append(char c) {
+                    out.append(c);
+                }
+
+                @Override
+                public void end() {
+                }
+            });
+            for (int i = 0; i < str.length(); i++) {
+                sink.append(str.charAt(i));
+            }
+            sink.end();
+            Assert.assertEquals(str, WhiteSpaceUtil.sanitizeLine(str), out.toString());
+        }
+    }
+
+    @Test
+    public void testLineBreaks() {
+        Assert.assertEquals(" abc", WhiteSpaceUtil.sanitize("\nabc"));
+        Assert.assertEquals("abc", WhiteSpaceUtil.sanitize("abc\r\n"));
+        Assert.assertEquals("abc ", WhiteSpaceUtil.sanitize("abc\n  \n"));
+        Assert.assertEquals("", WhiteSpaceUtil.sanitize("\n\u2028\n"));
+        Assert.assertEquals("a  b", WhiteSpaceUtil.sanitize("a\n\u00A0\nb"));
+        Assert.assertEquals("a  b", WhiteSpaceUtil.sanitizeLine("a \u200B b"));
+        Assert.assertNull(WhiteSpaceUtil.sanitize(null));
+        Assert.assertEquals("", WhiteSpaceUtil.sanitizeLine(""));
+    }
+}
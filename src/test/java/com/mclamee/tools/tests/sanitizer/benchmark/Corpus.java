@@ -0,0 +1,110 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.Random;
+
+/**
+ * Realistic texts for the white space benchmarks, generated from a fixed seed
+ */
+public enum Corpus {
+    /**
+     * English like words, mostly single spaces, some tabs, double spaces and CRLF line breaks
+     */
+    ASCII {
+        @Override
+        void appendWord(StringBuilder out, Random random) {
+            for (int i = 1 + random.nextInt(9); i > 0; i--) {
+                out.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+
+        @Override
+        void appendSeparator(StringBuilder out, Random random) {
+            int n = random.nextInt(100);
+            out.append(n < 90 ? " " : n < 95 ? "  " : n < 98 ? "\t" : " \t ");
+        }
+    },
+    /**
+     * CJK ideographs with ideographic spaces U+3000
+     */
+    CJK {
+        @Override
+        void appendWord(StringBuilder out, Random random) {
+            for (int i = 2 + random.nextInt(18); i > 0; i--) {
+                out.append((char) (0x4E00 + random.nextInt(0x5000)));
+            }
+        }
+
+        @Override
+        void appendSeparator(StringBuilder out, Random random) {
+            int n = random.nextInt(100);
+            out.append(n < 60 ? "\u3000" : n < 80 ? "\u3002" : n < 95 ? "\uFF0C" : "\u3000\u3000");
+        }
+    },
+    /**
+     * Text pasted from HTML: NBSP between words and zero-width characters
+     */
+    HTML {
+        @Override
+        void appendWord(StringBuilder out, Random random) {
+            ASCII.appendWord(out, random);
+            if (random.nextInt(20) == 0) {
+                out.append(random.nextBoolean() ? '\u200B' : '\uFEFF');
+            }
+        }
+
+        @Override
+        void appendSeparator(StringBuilder out, Random random) {
+            int n = random.nextInt(100);
+            out.append(n < 60 ? " " : n < 85 ? "\u00A0" : n < 95 ? "\u00A0 " : "\u200B ");
+        }
+    },
+    /**
+     * Escaped HTML source: the NBSP and zero-width characters as entities, named or numeric
+     */
+    HTML_ENTITIES {
+        @Override
+        void appendWord(StringBuilder out, Random random) {
+            ASCII.appendWord(out, random);
+            if (random.nextInt(20) == 0) {
+                out.append(random.nextBoolean() ? "&#8203;" : "&zwnj;");
+            }
+        }
+
+        @Override
+        void appendSeparator(StringBuilder out, Random random) {
+            int n = random.nextInt(100);
+            out.append(n < 60 ? " " : n < 80 ? "&nbsp;" : n < 85 ? "&#160;" : n < 95 ? "&nbsp; " : n < 98 ? "&amp; " : "&#8203; ");
+        }
+    };
+
+    abstract void appendWord(StringBuilder out, Random random);
+
+    abstract void appendSeparator(StringBuilder out, Random random);
+
+    /**
+     * Generate lines of about 80 chars up to the length, with indents and trailing spaces on some lines
+     *
+     * @param length the length of the text
+     * @param seed   the random seed
+     * @return the text
+     */
+    public String generate(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(length + 100);
+        int lineStart = 0;
+        while (out.length() < length) {
+            if (out.length() - lineStart > 80) {
+                out.append(random.nextInt(4) == 0 ? " \r\n" : random.nextBoolean() ? "\r\n" : "\n");
+                lineStart = out.length();
+                if (random.nextInt(5) == 0) {
+                    out.append("    ");
+                }
+            } else if (out.length() > lineStart) {
+                appendSeparator(out, random);
+            }
+            appendWord(out, random);
+        }
+        out.setLength(length);
+        return out.toString();
+    }
+}
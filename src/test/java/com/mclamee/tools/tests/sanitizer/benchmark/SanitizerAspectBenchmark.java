@@ -0,0 +1,108 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.EnableSanitizerModule;
+import com.mclamee.tools.sanitizer.ResolvedSanitizer;
+import com.mclamee.tools.sanitizer.Sanitized;
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerAspect;
+import com.mclamee.tools.sanitizer.SanitizerEngine;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Per call overhead of the {@link SanitizerAspect} proxies against an unproxied baseline calling the Sanitizer by hand
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizerAspectBenchmark {
+
+    public static class Service {
+        public String call(@Sanitized("shorten") String value) {
+            return value;
+        }
+
+        public String plain(String value) {
+            return value;
+        }
+
+        @Sanitizer("shorten")
+        public static String shorten(String value) {
+            return value.length() > 3 ? value.substring(0, 3) : value;
+        }
+    }
+
+    @EnableSanitizerModule
+    public static class Config {
+        @Bean
+        public Service service() {
+            return new Service();
+        }
+    }
+
+    private AnnotationConfigApplicationContext context;
+    private Service proxied;
+    private Service unproxied;
+    private ResolvedSanitizer<String> resolver;
+    private String value = "sanitize me";
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the per call logs are not measured
+        Logger.getLogger(SanitizerAspect.class).setLevel(org.apache.log4j.Level.WARN);
+        context = new AnnotationConfigApplicationContext(Config.class);
+        proxied = context.getBean(Service.class);
+        unproxied = new Service();
+        resolver = context.getBean(SanitizerEngine.class).resolver(String.class, "shorten");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String baseline() {
+        return unproxied.call(Service.shorten(value));
+    }
+
+    @Benchmark
+    public String engine() {
+        return unproxied.call(resolver.sanitize(value));
+    }
+
+    @Benchmark
+    public String proxied() {
+        return proxied.call(value);
+    }
+
+    @Benchmark
+    public String proxiedUnsanitized() {
+        return proxied.plain(value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SanitizerAspectBenchmark.class.getSimpleName()).build()).run();
+    }
+}
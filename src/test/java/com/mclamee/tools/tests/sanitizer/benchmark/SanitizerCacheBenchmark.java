@@ -0,0 +1,92 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.sanitizer.SanitizerCache;
+import com.mclamee.tools.sanitizer.SanitizerDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link SanitizerCache#get(SanitizerCache.SanitizerCacheKey, boolean)} on a frozen cache of 10 to 1000 Sanitizers:
+ * a named hit, a miss of the rules 1 to 4, and a miss falling back to the default rules like the aspect does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizerCacheBenchmark {
+    private static final int TYPES = 10;
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private SanitizerCache cache;
+    private SanitizerCache.SanitizerCacheKey hit;
+    private SanitizerCache.SanitizerCacheKey miss;
+
+    public static String identity(String value) {
+        return value;
+    }
+
+    private static SanitizerCache.SanitizerCacheKey key(int type, int clazz, String name) {
+        return SanitizerCache.SanitizerCacheKey.builder()
+            .genericTypeName("com.example.Type" + type)
+            .className("com.example.Class" + clazz)
+            .sanitizerName(name)
+            .methodName(name)
+            .build();
+    }
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        SanitizerDefinition definition = SanitizerDefinition.of(SanitizerCacheBenchmark.class.getMethod("identity", String.class));
+        cache = new SanitizerCache();
+        cache.init();
+        for (int i = 0; i < size; i++) {
+            cache.put(key(i % TYPES, i, "sanitizer" + i), definition);
+        }
+        for (int type = 0; type < TYPES; type++) {
+            cache.put(key(type, type, SanitizerCache.DEFAULT_KEY), definition);
+        }
+        cache.freeze();
+
+        int last = size - 1;
+        hit = key(last % TYPES, last, "sanitizer" + last);
+        miss = key(last % TYPES, last, "unknown");
+    }
+
+    @Benchmark
+    public SanitizerDefinition hit() {
+        return cache.get(hit, false);
+    }
+
+    @Benchmark
+    public SanitizerDefinition miss() {
+        return cache.get(miss, false);
+    }
+
+    @Benchmark
+    public SanitizerDefinition defaultFallback() {
+        SanitizerDefinition sanitizer = cache.get(miss, false);
+        return sanitizer != null ? sanitizer : cache.get(miss, true);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SanitizerCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
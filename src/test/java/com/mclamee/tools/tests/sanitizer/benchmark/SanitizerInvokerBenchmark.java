@@ -0,0 +1,78 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.sanitizer.SanitizerInvoker;
+import com.mclamee.tools.sanitizer.SanitizerDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare calling a Sanitizer reflectively, like the aspect used to, against the cached invokers
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizerInvokerBenchmark {
+
+    public static String shorten(String str) {
+        return str.length() > 3 ? str.substring(0, 3) : str;
+    }
+
+    private static String hiddenShorten(String str) {
+        return str.length() > 3 ? str.substring(0, 3) : str;
+    }
+
+    private String value = "sanitize me";
+    private Method reflective;
+    private SanitizerInvoker lambdaInvoker;
+    private SanitizerInvoker handleInvoker;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        reflective = SanitizerInvokerBenchmark.class.getMethod("shorten", String.class);
+        // public method, spun by LambdaMetafactory
+        lambdaInvoker = SanitizerDefinition.of(reflective).getInvoker();
+        // private method, falls back to a MethodHandle
+        handleInvoker = SanitizerDefinition.of(SanitizerInvokerBenchmark.class.getDeclaredMethod("hiddenShorten", String.class)).getInvoker();
+    }
+
+    @Benchmark
+    public Object direct() {
+        return shorten(value);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return reflective.invoke(new Object(), value);
+    }
+
+    @Benchmark
+    public Object lambdaMetafactory() throws Throwable {
+        return lambdaInvoker.invoke(value);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Throwable {
+        return handleInvoker.invoke(value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SanitizerInvokerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
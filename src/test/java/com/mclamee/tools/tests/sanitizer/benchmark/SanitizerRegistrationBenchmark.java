@@ -0,0 +1,132 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.EnableSanitizerModule;
+import com.mclamee.tools.sanitizer.Sanitized;
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerPostProcessor;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Throughput of the proxied calls while the Sanitizers of a plugin are registered and unregistered at runtime, against
+ * the same readers with an idle writer. Every write publishes a new version of the cached Sanitizers, so the readers
+ * resolve their plan again once per write, without taking a lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizerRegistrationBenchmark {
+
+    public static class Service {
+        public String call(@Sanitized("shorten") String value) {
+            return value;
+        }
+
+        @Sanitizer("shorten")
+        public static String shorten(String value) {
+            return value.length() > 3 ? value.substring(0, 3) : value;
+        }
+    }
+
+    public static class Plugin {
+        @Sanitizer("tenant")
+        public static String tenant(String value) {
+            return value.trim();
+        }
+    }
+
+    @EnableSanitizerModule
+    public static class Config {
+        @Bean
+        public Service service() {
+            return new Service();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private boolean registered;
+    }
+
+    // pause between two writes, plugins are loaded far less often in practice
+    @Param({"1000", "100"})
+    private long writeIntervalMicros;
+
+    private AnnotationConfigApplicationContext context;
+    private SanitizerPostProcessor postProcessor;
+    private Service proxied;
+    private String value = "sanitize me";
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the per call and per registration logs are not measured
+        Logger.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        context = new AnnotationConfigApplicationContext(Config.class);
+        postProcessor = context.getBean(SanitizerPostProcessor.class);
+        proxied = context.getBean(Service.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(3)
+    public String readOnlyReader() {
+        return proxied.call(value);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(1)
+    public void readOnlyWriter() throws InterruptedException {
+        TimeUnit.MICROSECONDS.sleep(writeIntervalMicros);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public String readWriteReader() {
+        return proxied.call(value);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public long readWriteWriter(Writer writer) throws InterruptedException {
+        long version = writer.registered ? postProcessor.unregister(Plugin.class) : postProcessor.register(Plugin.class);
+        writer.registered = !writer.registered;
+        TimeUnit.MICROSECONDS.sleep(writeIntervalMicros);
+        return version;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SanitizerRegistrationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
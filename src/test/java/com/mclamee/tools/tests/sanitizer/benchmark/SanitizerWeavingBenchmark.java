@@ -0,0 +1,140 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.EnableSanitizerModule;
+import com.mclamee.tools.sanitizer.Sanitized;
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerAspect;
+import org.apache.log4j.Logger;
+import org.aspectj.lang.Aspects;
+import org.aspectj.weaver.loadtime.Agent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AdviceMode;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Compare the Spring AOP proxies against the aspect woven at load time: the overhead of a sanitized call and the
+ * context startup. The ASPECTJ mode must run with the weaver agent, see {@link #main(String[])}.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizerWeavingBenchmark {
+
+    public static class WovenBean {
+        public String call(@Sanitized("identity") String value) {
+            return value;
+        }
+
+        public String unsanitized(String value) {
+            return value;
+        }
+
+        @Sanitizer("identity")
+        public static String identity(String value) {
+            return value;
+        }
+    }
+
+    @EnableSanitizerModule
+    public static class ProxyConfig {
+        @Bean
+        public WovenBean wovenBean() {
+            return new WovenBean();
+        }
+    }
+
+    @EnableSanitizerModule(mode = AdviceMode.ASPECTJ)
+    public static class AspectJConfig {
+        @Bean
+        public WovenBean wovenBean() {
+            return new WovenBean();
+        }
+    }
+
+    @Param({"PROXY", "ASPECTJ"})
+    private AdviceMode mode;
+
+    private AnnotationConfigApplicationContext context;
+    private WovenBean bean;
+    private String value = "sanitize me";
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the per call logs are not measured
+        Logger.getLogger(SanitizerAspect.class).setLevel(org.apache.log4j.Level.WARN);
+        if (mode == AdviceMode.ASPECTJ && !Aspects.hasAspect(SanitizerAspect.class)) {
+            throw new IllegalStateException("SanitizerAspect is not woven, run with -javaagent:" + agentPath());
+        }
+        context = start();
+        bean = context.getBean(WovenBean.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private AnnotationConfigApplicationContext start() {
+        return new AnnotationConfigApplicationContext(mode == AdviceMode.ASPECTJ ? AspectJConfig.class : ProxyConfig.class);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String sanitizedCall() {
+        return bean.call(value);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String unsanitizedCall() {
+        return bean.unsanitized(value);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void startup() {
+        start().close();
+    }
+
+    private static String agentPath() {
+        return Agent.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SanitizerWeavingBenchmark.class.getSimpleName())
+            .param("mode", AdviceMode.PROXY.name())
+            .build()).run();
+        new Runner(new OptionsBuilder()
+            .include(SanitizerWeavingBenchmark.class.getSimpleName())
+            .param("mode", AdviceMode.ASPECTJ.name())
+            .jvmArgsAppend("-javaagent:" + agentPath())
+            .build()).run();
+    }
+}
@@ -0,0 +1,125 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.sanitizer.Sanitizer;
+import com.mclamee.tools.sanitizer.SanitizerDefinition;
+import com.mclamee.tools.sanitizer.SanitizerInvoker;
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Retained heap of a large import of VOs whose repeated city and category names are sanitized, with and without
+ * {@link Sanitizer#dedup()}. The heap retained by the rows is reported by the {@code retainedBytes} counter, the time
+ * includes the forced GCs measuring it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class StringDedupBenchmark {
+    private static final int CITIES = 200;
+    private static final int CATEGORIES = 50;
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowVo {
+        private final long id;
+        private final String city;
+        private final String category;
+    }
+
+    @Sanitizer("line")
+    public static String line(String value) {
+        return WhiteSpaceUtil.sanitizeLine(value);
+    }
+
+    @Sanitizer(value = "dedupLine", dedup = true)
+    public static String dedupLine(String value) {
+        return WhiteSpaceUtil.sanitizeLine(value);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Heap {
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytes = 0;
+        }
+    }
+
+    @Param({"false", "true"})
+    private boolean dedup;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private SanitizerInvoker invoker;
+    private char[][] cities;
+    private char[][] categories;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        invoker = SanitizerDefinition.of(getClass().getMethod(dedup ? "dedupLine" : "line", String.class)).getInvoker();
+        // pasted input: padded by spaces and NBSP, so that each sanitized value is a new instance
+        cities = new char[CITIES][];
+        for (int i = 0; i < CITIES; i++) {
+            cities[i] = (" City\u00A0" + i + " ").toCharArray();
+        }
+        categories = new char[CATEGORIES][];
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories[i] = ("\u3000Category " + i + " ").toCharArray();
+        }
+    }
+
+    @Benchmark
+    public List<RowVo> importRows(Heap heap) throws Throwable {
+        long before = usedHeap();
+        List<RowVo> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            // a new String per row, as read from a file or a request
+            String city = (String) invoker.invoke(new String(cities[i % CITIES]));
+            String category = (String) invoker.invoke(new String(categories[i % CATEGORIES]));
+            result.add(new RowVo(i, city, category));
+        }
+        heap.retainedBytes = usedHeap() - before;
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(StringDedupBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * A parser loop sanitizing the lines of a {@link Corpus} text: a new String per line against the caller-owned buffer
+ * overloads of {@link WhiteSpaceUtil}. Run with the gc profiler, {@code -prof gc}, the buffer overloads allocate no
+ * byte per operation in steady state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WhiteSpaceBufferBenchmark {
+
+    @Param({"ASCII", "CJK", "HTML"})
+    private Corpus corpus;
+
+    @Param({"65536"})
+    private int length;
+
+    private String[] lines;
+    private CharBuffer[] slices;
+    private char[] chars;
+    private int[] lineEnds;
+    private StringBuilder out;
+
+    @Setup
+    public void setup() {
+        String text = corpus.generate(length, 20190608L);
+        lines = text.split("\n");
+        chars = text.toCharArray();
+        slices = new CharBuffer[lines.length];
+        lineEnds = new int[lines.length];
+        CharBuffer whole = CharBuffer.wrap(chars);
+        int start = 0;
+        for (int i = 0; i < lines.length; i++) {
+            lineEnds[i] = start + lines[i].length();
+            whole.limit(lineEnds[i]).position(start);
+            slices[i] = whole.slice();
+            whole.clear();
+            start = lineEnds[i] + 1;
+        }
+        out = new StringBuilder(256);
+    }
+
+    @Benchmark
+    public void sanitize(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(WhiteSpaceUtil.sanitize(line));
+        }
+    }
+
+    @Benchmark
+    public void sanitizeTo(Blackhole blackhole) {
+        for (String line : lines) {
+            out.setLength(0);
+            blackhole.consume(WhiteSpaceUtil.sanitizeTo(line, out, true));
+        }
+    }
+
+    @Benchmark
+    public void sanitizeToFromCharBuffer(Blackhole blackhole) {
+        for (CharBuffer slice : slices) {
+            out.setLength(0);
+            blackhole.consume(WhiteSpaceUtil.sanitizeTo(slice, out, true));
+        }
+    }
+
+    @Benchmark
+    public void sanitizeToFromCharArray(Blackhole blackhole) {
+        int start = 0;
+        for (int end : lineEnds) {
+            out.setLength(0);
+            blackhole.consume(WhiteSpaceUtil.sanitizeTo(chars, start, end - start, out, true));
+            start = end + 1;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(WhiteSpaceBufferBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.mclamee.tools.tests.sanitizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mclamee.tools.sanitizer.util.WhiteSpaceUtil;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link WhiteSpaceUtil} over the {@link Corpus} texts from 1 KB to 10 MB chars
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class WhiteSpaceUtilBenchmark {
+
+    @Param({"ASCII", "CJK", "HTML", "HTML_ENTITIES"})
+    private Corpus corpus;
+
+    @Param({"1024", "1048576", "10485760"})
+    private int length;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        text = corpus.generate(length, 20190601L);
+    }
+
+    @Benchmark
+    public String sanitize() {
+        return WhiteSpaceUtil.sanitize(text);
+    }
+
+    @Benchmark
+    public String sanitizeLines() {
+        return WhiteSpaceUtil.sanitize(text, false);
+    }
+
+    @Benchmark
+    public String sanitizeLine() {
+        return WhiteSpaceUtil.sanitizeLine(text);
+    }
+
+    @Benchmark
+    public String sanitizeHtml() {
+        return WhiteSpaceUtil.sanitizeHtml(text, true);
+    }
+
+    /**
+     * The extra unescape pass {@link #sanitizeHtml()} replaces
+     */
+    @Benchmark
+    public String unescapeThenSanitize() {
+        return WhiteSpaceUtil.sanitize(StringEscapeUtils.unescapeHtml4(text));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WhiteSpaceUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}